@@ -25,7 +25,7 @@ public class CustomConverterFactory extends Converter.Factory{
     @Override
     public Converter<MetadataBuffer, ?> responseBodyConverter(Type type, Annotation[] annotations, Zapdos retrofit) {
         if (type == Message.class) {
-            return new MessageReadConverter(mGoogleApiClient);
+            return new MessageReadConverter(retrofit);
         }
         return super.responseBodyConverter(type, annotations, retrofit);
     }
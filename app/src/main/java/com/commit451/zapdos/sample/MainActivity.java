@@ -16,6 +16,8 @@ import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.drive.Drive;
 import com.google.android.gms.drive.DriveId;
 
+import java.io.File;
+
 import rx.Subscriber;
 import rx.android.schedulers.AndroidSchedulers;
 import rx.schedulers.Schedulers;
@@ -68,6 +70,7 @@ public class MainActivity extends AppCompatActivity implements GoogleApiClient.C
         Zapdos zapdos = new Zapdos.Builder(mGoogleApiClient)
                 .baseScope(Drive.SCOPE_APPFOLDER)
                 .addConverterFactory(CustomConverterFactory.create(mGoogleApiClient))
+                .contentCache(new File(getCacheDir(), "zapdos"), 10 * 1024 * 1024)
                 .build();
         mSampleDrive = zapdos.create(SampleDrive.class);
 
@@ -1,40 +1,28 @@
 package com.commit451.zapdos.sample;
 
-import com.commit451.zapdos.Converter;
-import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.drive.DriveContents;
-import com.google.android.gms.drive.DriveFile;
-import com.google.android.gms.drive.Metadata;
-import com.google.android.gms.drive.MetadataBuffer;
+import com.commit451.zapdos.SourceConverter;
+import com.commit451.zapdos.Zapdos;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import okio.BufferedSource;
 
 /**
  * Converter
  */
-public class MessageReadConverter implements Converter<MetadataBuffer, Message> {
-
-    private GoogleApiClient mGoogleApiClient;
+public class MessageReadConverter extends SourceConverter<Message> {
 
-    public MessageReadConverter(GoogleApiClient googleApiClient) {
-        mGoogleApiClient = googleApiClient;
+    public MessageReadConverter(Zapdos zapdos) {
+        super(zapdos);
     }
 
     @Override
-    public Message convert(MetadataBuffer value) throws IOException {
-        if (value.getCount() > 0) {
-            Metadata metadata = value.get(0);
-            DriveContents driveContents = metadata.getDriveId().asDriveFile().open(mGoogleApiClient, DriveFile.MODE_READ_ONLY, null)
-                    .await()
-                    .getDriveContents();
-            if (driveContents == null) {
-                return null;
-            }
-            InputStream inputStream = driveContents.getInputStream();
-            String content = StringUtil.read(inputStream);
-            return new Message(content);
-        }
-        return null;
+    public Message getFromSource(BufferedSource source) throws IOException {
+        //parse straight off of the contents instead of reading them into a string first
+        JsonReader reader = new JsonReader(new InputStreamReader(source.inputStream(), "UTF-8"));
+        return new Gson().fromJson(reader, Message.class);
     }
 }
@@ -7,6 +7,10 @@ import com.google.android.gms.drive.MetadataChangeSet;
 import com.google.gson.Gson;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import okio.BufferedSink;
 
 /**
  * Converter
@@ -20,10 +24,16 @@ public class MessageWriteConverter implements Converter<Message, RequestBody> {
     }
 
     @Override
-    public RequestBody convert(Message value) throws IOException {
-        Gson gson = new Gson();
-        String json = gson.toJson(value);
-        return RequestBody.create(createMetadataChangeSet(), json.getBytes());
+    public RequestBody convert(final Message value) throws IOException {
+        return new RequestBody(createMetadataChangeSet()) {
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                //stream the json straight into drive rather than building a string first
+                Writer writer = new OutputStreamWriter(sink.outputStream(), "UTF-8");
+                new Gson().toJson(value, Message.class, writer);
+                writer.flush();
+            }
+        };
     }
 
     private MetadataChangeSet createMetadataChangeSet() {
@@ -2,8 +2,10 @@ package com.commit451.zapdos.sample;
 
 import com.commit451.zapdos.drive.Body;
 import com.commit451.zapdos.drive.CREATE;
+import com.commit451.zapdos.drive.Each;
 import com.commit451.zapdos.drive.Path;
 import com.commit451.zapdos.drive.READ;
+import com.google.android.gms.drive.Metadata;
 
 import rx.Observable;
 
@@ -15,6 +17,14 @@ public interface SampleDrive {
     @READ("message/{message_file_name}")
     Observable<Message> getMessage(@Path("message_file_name") String messageFileName);
 
+    @Each
+    @READ("message")
+    Observable<Message> getMessages();
+
+    @Each
+    @READ("message")
+    Observable<Metadata> getMessageMetadata();
+
     @CREATE("message/{message_id}")
     Observable<Message> writeMessage(@Path("message_id") String messageFileName, @Body Message message);
 
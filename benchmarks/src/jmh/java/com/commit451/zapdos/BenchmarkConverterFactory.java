@@ -0,0 +1,47 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.drive.MetadataBuffer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Converts Strings without ever touching Drive. The converters are never actually invoked
+ * against a {@link MetadataBuffer}, since the benchmarks do not subscribe.
+ */
+class BenchmarkConverterFactory extends Converter.Factory {
+
+    @Override
+    public Converter<MetadataBuffer, ?> responseBodyConverter(Type type, Annotation[] annotations, Zapdos retrofit) {
+        if (type == String.class) {
+            return new StringConverter<String>((GoogleApiClient) null) {
+                @Override
+                public String getFromString(String string) {
+                    return string;
+                }
+            };
+        }
+        return null;
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Zapdos zapdos) {
+        if (type == String.class) {
+            return new Converter<String, RequestBody>() {
+                @Override
+                public RequestBody convert(String value) {
+                    return RequestBody.create(null, value.getBytes());
+                }
+            };
+        }
+        return null;
+    }
+
+    /**
+     * A factory which handles nothing, to pad out the list of factories that have to be searched
+     */
+    static class Unrelated extends Converter.Factory {
+    }
+}
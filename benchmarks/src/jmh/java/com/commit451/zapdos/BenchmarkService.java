@@ -0,0 +1,22 @@
+package com.commit451.zapdos;
+
+import com.commit451.zapdos.drive.Body;
+import com.commit451.zapdos.drive.CREATE;
+import com.commit451.zapdos.drive.Path;
+import com.commit451.zapdos.drive.READ;
+import com.google.android.gms.drive.DriveId;
+
+import rx.Observable;
+
+/**
+ * The service interface the benchmarks call through
+ */
+public interface BenchmarkService {
+
+    @READ("notes/{name}")
+    Observable<String> read(@Path("name") String name);
+
+    @CREATE("users/{user}/notes/{year}/{name}")
+    Observable<DriveId> write(@Path("user") String user, @Path("year") String year,
+                              @Path("name") String name, @Body String body);
+}
@@ -0,0 +1,57 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.drive.Drive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding a converter when the one that applies sits behind a number of factories which do not
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConverterLookupBenchmark {
+
+    @Param({"1", "10"})
+    public int factoryCount;
+
+    private Zapdos mZapdos;
+    private Annotation[] mMethodAnnotations;
+    private Annotation[] mParameterAnnotations;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        Zapdos.Builder builder = new Zapdos.Builder(null)
+                .baseScope(Drive.SCOPE_APPFOLDER);
+        for (int i = 1; i < factoryCount; i++) {
+            builder.addConverterFactory(new BenchmarkConverterFactory.Unrelated());
+        }
+        builder.addConverterFactory(new BenchmarkConverterFactory());
+        mZapdos = builder.build();
+        Method method = BenchmarkService.class.getMethod("write",
+                String.class, String.class, String.class, String.class);
+        mMethodAnnotations = method.getAnnotations();
+        mParameterAnnotations = method.getParameterAnnotations()[3];
+    }
+
+    @Benchmark
+    public Object requestBodyConverter() {
+        return mZapdos.nextRequestBodyConverter(null, String.class, mParameterAnnotations, mMethodAnnotations);
+    }
+
+    @Benchmark
+    public Object responseBodyConverter() {
+        return mZapdos.nextResponseBodyConverter(null, String.class, mMethodAnnotations);
+    }
+}
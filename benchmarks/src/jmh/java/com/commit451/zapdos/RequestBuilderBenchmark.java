@@ -0,0 +1,60 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.drive.Drive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filling in path params, both when the value can be used as is and when it has to be
+ * percent encoded by {@code canonicalizeForPath}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestBuilderBenchmark {
+
+    @Param({"journal", "my journal/2016 ✓"})
+    public String value;
+
+    private PathTemplate mOneParam;
+    private PathTemplate mThreeParams;
+
+    @Setup
+    public void setup() {
+        //compiled once when the ServiceMethod is built
+        mOneParam = PathTemplate.parse("notes/{name}");
+        mThreeParams = PathTemplate.parse("users/{user}/notes/{year}/{name}");
+    }
+
+    @Benchmark
+    public Request addPathParam() {
+        RequestBuilder builder = new RequestBuilder(Driver.METHOD_READ, Drive.SCOPE_APPFOLDER,
+                mOneParam, false);
+        builder.addPathParam(0, value, false);
+        return builder.build();
+    }
+
+    @Benchmark
+    public Request addThreePathParams() {
+        RequestBuilder builder = new RequestBuilder(Driver.METHOD_READ, Drive.SCOPE_APPFOLDER,
+                mThreeParams, false);
+        builder.addPathParam(0, value, false);
+        builder.addPathParam(1, "2016", false);
+        builder.addPathParam(2, value, false);
+        return builder.build();
+    }
+
+    @Benchmark
+    public PathTemplate parseTemplate() {
+        return PathTemplate.parse("users/{user}/notes/{year}/{name}");
+    }
+}
@@ -0,0 +1,68 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.drive.Drive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures dispatching a call through the service proxy, and turning arguments into a {@link Request}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ServiceMethodBenchmark {
+
+    private Zapdos mZapdos;
+    private BenchmarkService mService;
+    private Method mReadMethod;
+    private ServiceMethod mRead;
+    private ServiceMethod mWrite;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        mZapdos = new Zapdos.Builder(null)
+                .baseScope(Drive.SCOPE_APPFOLDER)
+                .addConverterFactory(new BenchmarkConverterFactory())
+                .build();
+        mService = mZapdos.create(BenchmarkService.class);
+        mReadMethod = BenchmarkService.class.getMethod("read", String.class);
+        mRead = mZapdos.loadServiceMethod(mReadMethod);
+        mWrite = mZapdos.loadServiceMethod(BenchmarkService.class.getMethod("write",
+                String.class, String.class, String.class, String.class));
+    }
+
+    @Benchmark
+    public Object proxyDispatch() {
+        return mService.read("journal");
+    }
+
+    @Benchmark
+    public Object loadServiceMethod() {
+        return mZapdos.loadServiceMethod(mReadMethod);
+    }
+
+    @Benchmark
+    public Object buildServiceMethod() {
+        return new ServiceMethod.Builder(mZapdos, mReadMethod).build();
+    }
+
+    @Benchmark
+    public Request toRequestOnePathParam() throws IOException {
+        return mRead.toRequest("journal");
+    }
+
+    @Benchmark
+    public Request toRequestThreePathParams() throws IOException {
+        return mWrite.toRequest("jawnnypoo", "2016", "journal", "Dear diary");
+    }
+}
@@ -0,0 +1,87 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+
+import okio.BufferedSource;
+
+/**
+ * The storage operations Zapdos is built on. {@link Driver} carries them out against Google Drive,
+ * while {@link LocalBackend} stores everything within a local directory. Folders and files are
+ * referred to by opaque ids which only mean something to the backend that handed them out.
+ */
+public interface Backend {
+
+    /**
+     * Resolve the folder at the uri, where every path segment is a folder
+     *
+     * @param folderUri           the folder, such as app://journals/j365
+     * @param createIfNotExistent if you want to create all the subfolders if they do not exist along the way
+     * @return the id of the folder, or null if it does not exist and was not created
+     */
+    @Nullable
+    String resolveFolder(Uri folderUri, boolean createIfNotExistent) throws IOException;
+
+    /**
+     * Find the files within a folder
+     *
+     * @param folderId the folder to look in
+     * @param title    the exact title of the files to find, or null for all of them
+     * @param mimeType the mime type of the files to find
+     * @return the matching files
+     */
+    List<Entry> query(String folderId, @Nullable String title, String mimeType) throws IOException;
+
+    /**
+     * Open the contents of a file for reading. Close the source once you are done with it.
+     */
+    BufferedSource open(String fileId) throws IOException;
+
+    /**
+     * Write the body into the titled file within the folder, creating the file if it does not exist yet
+     *
+     * @return the file that was written
+     */
+    Entry write(String folderId, String title, String mimeType, RequestBody body) throws IOException;
+
+    /**
+     * Delete a file
+     *
+     * @return true if the file was deleted
+     */
+    boolean delete(String fileId) throws IOException;
+
+    /**
+     * A file known to a {@link Backend}
+     */
+    final class Entry {
+
+        public final String id;
+        public final String title;
+        public final String mimeType;
+        /**
+         * The size in bytes, or -1 if unknown
+         */
+        public final long size;
+        /**
+         * The last modified time in milliseconds since the epoch, or -1 if unknown
+         */
+        public final long modifiedTime;
+
+        public Entry(String id, String title, String mimeType, long size, long modifiedTime) {
+            this.id = id;
+            this.title = title;
+            this.mimeType = mimeType;
+            this.size = size;
+            this.modifiedTime = modifiedTime;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{id=" + id + ", title=" + title + ", mimeType=" + mimeType + "}";
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.commit451.zapdos;
+
+import java.io.IOException;
+
+/**
+ * A converter which can also convert a file found by a {@link Backend}, so that its methods work
+ * against a backend set with {@link Zapdos.Builder#backend(Backend)}. {@link SourceConverter} is one.
+ */
+public interface BackendConverter<T> {
+
+    /**
+     * Convert the file, opening its contents through the backend if need be
+     */
+    T convert(Backend backend, Backend.Entry entry) throws IOException;
+}
@@ -0,0 +1,65 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.drive.Metadata;
+import com.google.android.gms.drive.MetadataBuffer;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Converters for reads which only need the metadata of files, such as their size, modified date
+ * or {@link com.google.android.gms.drive.DriveId}. A READ method returning {@link Metadata} or
+ * {@link Backend.Entry} gets its result from the query alone, without opening the contents of any
+ * file. Combine with {@link com.commit451.zapdos.drive.Each} to list a folder.
+ */
+final class BuiltInConverters extends Converter.Factory {
+
+    @Override
+    public Converter<MetadataBuffer, ?> responseBodyConverter(Type type, Annotation[] annotations, Zapdos zapdos) {
+        if (type == Metadata.class) {
+            return MetadataConverter.INSTANCE;
+        }
+        if (type == Backend.Entry.class) {
+            return EntryConverter.INSTANCE;
+        }
+        return null;
+    }
+
+    static final class MetadataConverter implements ItemConverter<Metadata> {
+        static final MetadataConverter INSTANCE = new MetadataConverter();
+
+        @Nullable
+        @Override
+        public Metadata convert(MetadataBuffer value) {
+            return value.getCount() > 0 ? convert(value.get(0)) : null;
+        }
+
+        @Override
+        public Metadata convert(Metadata metadata) {
+            //the buffer is released once converted, so keep a copy which outlives it
+            return metadata.freeze();
+        }
+    }
+
+    static final class EntryConverter implements ItemConverter<Backend.Entry>, BackendConverter<Backend.Entry> {
+        static final EntryConverter INSTANCE = new EntryConverter();
+
+        @Nullable
+        @Override
+        public Backend.Entry convert(MetadataBuffer value) {
+            return value.getCount() > 0 ? convert(value.get(0)) : null;
+        }
+
+        @Override
+        public Backend.Entry convert(Metadata metadata) {
+            return Driver.toEntry(metadata);
+        }
+
+        @Override
+        public Backend.Entry convert(Backend backend, Backend.Entry entry) {
+            return entry;
+        }
+    }
+}
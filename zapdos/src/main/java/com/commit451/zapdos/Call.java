@@ -0,0 +1,106 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.common.api.Status;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single invocation of a service method, from the first round trip to Drive to the last. Carries
+ * the deadline the invocation has to meet, and tallies up what it cost for the {@link EventListener}
+ * and the {@link Tracer}. Safe to share between the bodies of a batch, which are written concurrently.
+ */
+final class Call {
+
+    /**
+     * The service method which was invoked, or null for calls made through {@link Backend}
+     */
+    @Nullable
+    final Method method;
+    /**
+     * The driver which made the call, which files read for it are opened through
+     */
+    final Driver driver;
+    final Deadline deadline;
+    private final EventListener mListener;
+    @Nullable
+    private final Tracer mTracer;
+    @Nullable
+    private final String mPath;
+    private final long mTrack;
+    private final long mStartNanos;
+    private final AtomicInteger mRoundTrips = new AtomicInteger();
+    private final AtomicLong mBytesWritten = new AtomicLong();
+    private final AtomicBoolean mEnded = new AtomicBoolean();
+
+    Call(Driver driver, @Nullable Method method, @Nullable Uri uri, Deadline deadline,
+         EventListener listener, @Nullable Tracer tracer) {
+        this.driver = driver;
+        this.method = method;
+        this.deadline = deadline;
+        mListener = listener;
+        mTracer = tracer;
+        mPath = uri == null ? null : uri.toString();
+        mTrack = tracer == null ? 0 : tracer.nextTrack();
+        mStartNanos = System.nanoTime();
+    }
+
+    void folderResolved(Uri uri, long startNanos) {
+        long end = System.nanoTime();
+        mListener.folderResolved(method, uri, end - startNanos);
+        trace("resolve folder", uri.toString(), startNanos, end, -1, -1, null);
+    }
+
+    void roundTrip(String operation, Status status, long startNanos) {
+        long end = System.nanoTime();
+        mRoundTrips.incrementAndGet();
+        mListener.roundTrip(method, operation, status, end - startNanos);
+        trace(operation, mPath, startNanos, end, -1, status.getStatusCode(), null);
+    }
+
+    void bodyWritten(long byteCount, long startNanos) {
+        long end = System.nanoTime();
+        mBytesWritten.addAndGet(byteCount);
+        mListener.bodyWritten(method, byteCount, end - startNanos);
+        trace("write body", mPath, startNanos, end, byteCount, -1, null);
+    }
+
+    void bodyRead(long byteCount, long startNanos) {
+        long end = System.nanoTime();
+        mListener.bodyRead(method, byteCount, end - startNanos);
+        trace("read body", mPath, startNanos, end, byteCount, -1, null);
+    }
+
+    void converted(long startNanos) {
+        long end = System.nanoTime();
+        mListener.converted(method, end - startNanos);
+        trace("convert", mPath, startNanos, end, -1, -1, null);
+    }
+
+    /**
+     * Report that the call is over. Only the first end is reported, since a call which failed is
+     * unsubscribed from afterwards too.
+     *
+     * @param error what it failed with, or null if it succeeded
+     */
+    void end(@Nullable Throwable error) {
+        if (!mEnded.compareAndSet(false, true)) {
+            return;
+        }
+        long end = System.nanoTime();
+        mListener.callEnd(method, end - mStartNanos, mRoundTrips.get(), mBytesWritten.get(), error);
+        trace(method == null ? "call" : method.getName(), mPath, mStartNanos, end, mBytesWritten.get(), -1, error);
+    }
+
+    private void trace(String name, @Nullable String path, long startNanos, long endNanos, long bytes,
+                       int statusCode, @Nullable Throwable error) {
+        if (mTracer != null) {
+            mTracer.record(name, mTrack, method, path, startNanos, endNanos, bytes, statusCode, error);
+        }
+    }
+}
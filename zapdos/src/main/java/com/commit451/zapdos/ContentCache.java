@@ -0,0 +1,205 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Disk backed cache of file contents, keyed by file id and stamped with the modified date the
+ * contents had when they were downloaded. Contents are only served while the modified date still
+ * matches. The least recently used files are evicted once the cache grows past its max size.
+ */
+class ContentCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    //access ordered, so iteration starts with the least recently used. Guarded by this
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSize;
+    private boolean mInitialized;
+
+    ContentCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Get the cached contents of the file, if they were cached at the same modified date
+     *
+     * @return the contents, or null if they need to be downloaded
+     */
+    @Nullable
+    synchronized BufferedSource get(String id, long modified) throws IOException {
+        initialize();
+        String key = key(id);
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.modified != modified) {
+            //the file has changed since we cached it
+            remove(key, entry);
+            return null;
+        }
+        try {
+            return Okio.buffer(Okio.source(new FileInputStream(entry.file)));
+        } catch (FileNotFoundException e) {
+            //deleted behind our back, such as by the system clearing the cache directory
+            remove(key, entry);
+            return null;
+        }
+    }
+
+    /**
+     * Store the contents of the file by copying them to disk, and then serve them from there
+     *
+     * @param size the size of the contents, if known, so that files too big to cache are not
+     */
+    BufferedSource put(String id, long modified, long size, Source contents) throws IOException {
+        if (size > mMaxSize) {
+            return Okio.buffer(contents);
+        }
+        String key = key(id);
+        File file = new File(mDirectory, key + "-" + modified);
+        File temp = new File(mDirectory, file.getName() + "-" + Thread.currentThread().getId() + TEMP_SUFFIX);
+        synchronized (this) {
+            initialize();
+        }
+        BufferedSink sink = Okio.buffer(Okio.sink(temp));
+        try {
+            sink.writeAll(contents);
+        } catch (IOException e) {
+            sink.close();
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw e;
+        } finally {
+            contents.close();
+        }
+        sink.close();
+        synchronized (this) {
+            Entry existing = mEntries.get(key);
+            if (existing != null) {
+                remove(key, existing);
+            }
+            if (!temp.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+                throw new IOException("Failed to move " + temp + " to " + file);
+            }
+            Entry entry = new Entry(file, modified, file.length());
+            mEntries.put(key, entry);
+            mSize += entry.size;
+            //open before trimming, so that the file can still be read if it gets evicted right away
+            BufferedSource source = Okio.buffer(Okio.source(new FileInputStream(file)));
+            trimToSize();
+            return source;
+        }
+    }
+
+    synchronized void remove(String id) {
+        String key = key(id);
+        Entry entry = mEntries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        mEntries.remove(key);
+        mSize -= entry.size;
+        //noinspection ResultOfMethodCallIgnored
+        entry.file.delete();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            iterator.remove();
+            mSize -= entry.size;
+            //noinspection ResultOfMethodCallIgnored
+            entry.file.delete();
+        }
+    }
+
+    /**
+     * Pick up what was cached by a previous process, oldest first
+     */
+    private void initialize() throws IOException {
+        if (mInitialized) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Failed to create cache directory " + mDirectory);
+        }
+        mInitialized = true;
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long left = lhs.lastModified();
+                long right = rhs.lastModified();
+                return left < right ? -1 : (left == right ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            String name = file.getName();
+            int dash = name.indexOf('-');
+            if (name.endsWith(TEMP_SUFFIX) || dash == -1) {
+                //left behind by a download that never finished
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                continue;
+            }
+            long modified;
+            try {
+                modified = Long.parseLong(name.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+                continue;
+            }
+            Entry entry = new Entry(file, modified, file.length());
+            mEntries.put(name.substring(0, dash), entry);
+            mSize += entry.size;
+        }
+        trimToSize();
+    }
+
+    private static String key(String id) {
+        //ids are not safe to use as file names
+        return ByteString.encodeUtf8(id).md5().hex();
+    }
+
+    private static class Entry {
+        final File file;
+        final long modified;
+        final long size;
+
+        Entry(File file, long modified, long size) {
+            this.file = file;
+            this.modified = modified;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.google.android.gms.drive.DriveId;
+
+import java.util.Map;
+
+import okio.ByteString;
+
+/**
+ * Remembers a digest of what was last written to each path, so that writing the same bytes
+ * again can be skipped. This only knows about writes made through this process, so a file changed
+ * from elsewhere will not be rewritten until different contents are written to it.
+ */
+class ContentHashes {
+
+    static final int DEFAULT_MAX_SIZE = 256;
+
+    private final LruCache<String, Written> mCache;
+
+    ContentHashes(int maxSize) {
+        mCache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Get the file at the path if the last write to it had the same digest
+     *
+     * @return the file, or null if it has to be written
+     */
+    @Nullable
+    DriveId getUnchanged(String path, String mimeType, ByteString hash) {
+        Written written = mCache.get(key(path, mimeType));
+        if (written != null && written.hash.equals(hash)) {
+            return written.driveId;
+        }
+        return null;
+    }
+
+    void put(String path, String mimeType, ByteString hash, DriveId driveId) {
+        mCache.put(key(path, mimeType), new Written(hash, driveId));
+    }
+
+    void remove(String path, String mimeType) {
+        mCache.remove(key(path, mimeType));
+    }
+
+    /**
+     * Forget every path whose last write went to the file, such as once it has been deleted
+     */
+    void remove(DriveId driveId) {
+        for (Map.Entry<String, Written> entry : mCache.snapshot().entrySet()) {
+            if (entry.getValue().driveId.equals(driveId)) {
+                mCache.remove(entry.getKey());
+            }
+        }
+    }
+
+    private static String key(String path, String mimeType) {
+        return mimeType + ' ' + path;
+    }
+
+    private static class Written {
+        final ByteString hash;
+        final DriveId driveId;
+
+        Written(ByteString hash, DriveId driveId) {
+            this.hash = hash;
+            this.driveId = driveId;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.commit451.zapdos;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * Identifies a converter lookup: the type being converted, the annotations it was declared with, and
+ * the factory which the lookup should skip past
+ */
+final class ConverterKey {
+
+    private final Converter.Factory skipPast;
+    private final Type type;
+    private final Annotation[] annotations;
+    private final Annotation[] methodAnnotations;
+    private final int hashCode;
+
+    ConverterKey(Converter.Factory skipPast, Type type, Annotation[] annotations,
+                 Annotation[] methodAnnotations) {
+        this.skipPast = skipPast;
+        this.type = type;
+        this.annotations = annotations;
+        this.methodAnnotations = methodAnnotations;
+        //annotations hash reflectively, so only do it once
+        int result = skipPast != null ? System.identityHashCode(skipPast) : 0;
+        result = 31 * result + type.hashCode();
+        result = 31 * result + Arrays.hashCode(annotations);
+        result = 31 * result + Arrays.hashCode(methodAnnotations);
+        this.hashCode = result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConverterKey)) {
+            return false;
+        }
+        ConverterKey other = (ConverterKey) o;
+        return hashCode == other.hashCode
+                && skipPast == other.skipPast
+                && type.equals(other.type)
+                && Arrays.equals(annotations, other.annotations)
+                && Arrays.equals(methodAnnotations, other.methodAnnotations);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
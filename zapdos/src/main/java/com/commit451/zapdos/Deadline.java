@@ -0,0 +1,116 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.Result;
+import com.google.android.gms.common.api.ResultCallback;
+import com.google.android.gms.common.api.Status;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The point in time by which an operation has to be done. Every round trip the operation makes
+ * waits for at most the time which remains, so a single stalled call cannot hang it.
+ */
+final class Deadline {
+
+    /**
+     * No deadline, so calls wait for as long as they take
+     */
+    static final Deadline NONE = new Deadline(0);
+
+    //0 when there is no deadline
+    private final long mDeadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        mDeadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @param timeoutMillis the time the operation may take, or 0 for no deadline
+     */
+    static Deadline after(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return NONE;
+        }
+        //nanoTime may be 0, or even negative, so never let a real deadline look like none
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        return new Deadline(deadlineNanos == 0 ? 1 : deadlineNanos);
+    }
+
+    boolean hasDeadline() {
+        return mDeadlineNanos != 0;
+    }
+
+    /**
+     * Get the time left before the deadline
+     *
+     * @throws InterruptedIOException if there is none left
+     */
+    long remainingNanos(String operation) throws InterruptedIOException {
+        long remaining = mDeadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            throw new InterruptedIOException("Timed out before trying to " + operation);
+        }
+        return remaining;
+    }
+
+    /**
+     * Wait for the result of the call, for no longer than the time left. Checking the status of
+     * the result is up to the caller, see {@link #check(Status, String)}.
+     *
+     * @param operation what the call does, for the error message, such as "query folder"
+     * @throws InterruptedIOException if the deadline has already passed
+     */
+    <R extends Result> R awaitResult(PendingResult<R> pendingResult, String operation) throws IOException {
+        R result;
+        if (!hasDeadline()) {
+            result = pendingResult.await();
+        } else {
+            long remaining;
+            try {
+                remaining = remainingNanos(operation);
+            } catch (InterruptedIOException e) {
+                pendingResult.cancel();
+                throw e;
+            }
+            result = pendingResult.await(remaining, TimeUnit.NANOSECONDS);
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link PendingResult#setResultCallback(ResultCallback)}, but the callback receives
+     * a {@link CommonStatusCodes#TIMEOUT} status if the deadline passes first
+     */
+    <R extends Result> void setResultCallback(PendingResult<R> pendingResult, ResultCallback<R> callback,
+                                              String operation) throws InterruptedIOException {
+        if (!hasDeadline()) {
+            pendingResult.setResultCallback(callback);
+            return;
+        }
+        long remaining;
+        try {
+            remaining = remainingNanos(operation);
+        } catch (InterruptedIOException e) {
+            pendingResult.cancel();
+            throw e;
+        }
+        pendingResult.setResultCallback(callback, remaining, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Turn a failed status into the matching exception
+     */
+    static void check(Status status, String operation) throws IOException {
+        if (status.isSuccess()) {
+            return;
+        }
+        if (status.getStatusCode() == CommonStatusCodes.TIMEOUT) {
+            throw new InterruptedIOException("Timed out trying to " + operation);
+        }
+        throw new DriveStatusException(operation, status);
+    }
+}
@@ -0,0 +1,32 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.Status;
+
+import java.io.IOException;
+
+/**
+ * Thrown when Drive reports that a call failed, carrying the {@link Status} it reported so that
+ * callers can tell transient failures, such as {@link com.google.android.gms.drive.DriveStatusCodes#DRIVE_RATE_LIMIT_EXCEEDED},
+ * from fatal ones
+ */
+public class DriveStatusException extends IOException {
+
+    private final Status mStatus;
+
+    public DriveStatusException(String operation, Status status) {
+        super("Failed to " + operation + ": " + status);
+        mStatus = status;
+    }
+
+    public Status getStatus() {
+        return mStatus;
+    }
+
+    /**
+     * The status code, one of {@link com.google.android.gms.common.api.CommonStatusCodes} or
+     * {@link com.google.android.gms.drive.DriveStatusCodes}
+     */
+    public int getStatusCode() {
+        return mStatus.getStatusCode();
+    }
+}
@@ -2,27 +2,51 @@ package com.commit451.zapdos;
 
 import android.net.Uri;
 import android.support.annotation.Nullable;
-import android.util.Log;
 
 import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.Result;
+import com.google.android.gms.common.api.Status;
 import com.google.android.gms.drive.Drive;
+import com.google.android.gms.drive.DriveApi;
 import com.google.android.gms.drive.DriveContents;
 import com.google.android.gms.drive.DriveFile;
 import com.google.android.gms.drive.DriveFolder;
 import com.google.android.gms.drive.DriveId;
+import com.google.android.gms.drive.Metadata;
 import com.google.android.gms.drive.MetadataBuffer;
 import com.google.android.gms.drive.MetadataChangeSet;
+import com.google.android.gms.drive.query.Filter;
 import com.google.android.gms.drive.query.Filters;
 import com.google.android.gms.drive.query.Query;
 import com.google.android.gms.drive.query.SearchableField;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
 
 /**
  * Actually carries out the drive operations
  */
-class Driver {
+class Driver implements Backend {
 
     public static final String METHOD_CREATE = "CREATE";
     public static final String METHOD_READ = "READ";
@@ -32,42 +56,291 @@ class Driver {
     private static final String MIME_TYPE_FOLDER = "application/vnd.google-apps.folder";
 
     private GoogleApiClient mGoogleApiClient;
+    private FolderCache mFolderCache;
+    private FileCache mFileCache;
+    @Nullable
+    private ContentHashes mContentHashes;
+    @Nullable
+    private ContentCache mContentCache;
+    private final RateLimiter mRateLimiter;
+    private final EventListener mEventListener;
+    @Nullable
+    private final Tracer mTracer;
+    private final SingleFlight<String, ResolvedFolder> mFolderCalls = new SingleFlight<>();
 
-    Driver(GoogleApiClient googleApiClient) {
+    Driver(GoogleApiClient googleApiClient, FolderCache folderCache, FileCache fileCache,
+           @Nullable ContentHashes contentHashes, @Nullable ContentCache contentCache, RateLimiter rateLimiter,
+           EventListener eventListener, @Nullable Tracer tracer) {
         mGoogleApiClient = googleApiClient;
+        mFolderCache = folderCache;
+        mFileCache = fileCache;
+        mContentHashes = contentHashes;
+        mContentCache = contentCache;
+        mRateLimiter = rateLimiter;
+        mEventListener = eventListener;
+        mTracer = tracer;
+    }
+
+    /**
+     * Start a call to report the request to the {@link EventListener} and {@link Tracer} with,
+     * under the timeout of the request from now
+     *
+     * @param request the request, or null for calls made through {@link Backend}, which never time out
+     */
+    Call newCall(@Nullable Request request) {
+        if (request == null) {
+            return new Call(this, null, null, Deadline.NONE, mEventListener, mTracer);
+        }
+        return newCall(request, Deadline.after(request.timeoutMillis));
+    }
+
+    /**
+     * Same as {@link #newCall(Request)}, but under a deadline which was started before, such as one
+     * shared by every attempt of the operation
+     */
+    Call newCall(Request request, Deadline deadline) {
+        return new Call(this, request.javaMethod, request.uri, deadline, mEventListener, mTracer);
     }
 
     public DriveId write(Request request) throws IOException {
-        DriveFolder folder = getDriveFolder(request.uri, true);
-        if (folder == null) {
-            throw new IOException("Failed to create folder");
+        return write(request, Deadline.after(request.timeoutMillis));
+    }
+
+    /**
+     * Same as {@link #write(Request)}, but under a deadline which was started before
+     */
+    DriveId write(Request request, Deadline deadline) throws IOException {
+        Call call = newCall(request, deadline);
+        try {
+            DriveId fileId = write(request, call);
+            call.end(null);
+            return fileId;
+        } catch (IOException | RuntimeException e) {
+            call.end(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Write the body of the request to its path, reporting to the call along the way. Ending the
+     * call is up to the caller.
+     */
+    DriveId write(Request request, Call call) throws IOException {
+        String path = request.uri.toString();
+        ByteString hash = contentHash(request.requestBody);
+        if (hash != null) {
+            DriveId unchanged = mContentHashes.getUnchanged(path, request.mimeType, hash);
+            if (unchanged != null) {
+                return unchanged;
+            }
         }
         String fileName = request.uri.getLastPathSegment();
-        DriveId fileId = findTitledFileInFolder(fileName, request.mimeType, folder);
-        DriveContents contents;
-        if (fileId == null) {
-            contents = Drive.DriveApi.newDriveContents(mGoogleApiClient).await().getDriveContents();
+        DriveFolder folder;
+        DriveId fileId;
+        try {
+            folder = getDriveFolder(request.uri, true, call);
+            fileId = findFile(fileName, request.mimeType, folder, call);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            //a cached folder might have been deleted, so walk the path again before giving up
+            if (!mFolderCache.invalidate(request.uri)) {
+                throw e;
+            }
+            folder = getDriveFolder(request.uri, true, call);
+            fileId = findFile(fileName, request.mimeType, folder, call);
+        }
+        return writeToFolder(folder, fileId, fileName, request.mimeType, request.requestBody, path, hash, call);
+    }
+
+    /**
+     * Resolve the folder of a batch write and list the files already within it, so that each
+     * body in the batch can be written without any lookups of its own
+     *
+     * @throws IllegalArgumentException if two bodies of the batch have the same title
+     */
+    public Batch prepareBatch(Request request, Call call) throws IOException {
+        checkUniqueTitles(request.requestBodies);
+        //the call covers the whole batch, including writing each body
+        DriveFolder folder;
+        //every segment of a batch uri is a folder, the bodies name the files
+        int folderCount = request.uri.getPathSegments().size();
+        if (folderCount == 0) {
+            folder = getStartFolder(request.uri);
         } else {
-            contents = fileId.asDriveFile().open(mGoogleApiClient, DriveFile.MODE_WRITE_ONLY, null)
-                    .await()
+            long start = System.nanoTime();
+            folder = resolveFolder(request.uri, folderCount, true, call).driveId.asDriveFolder();
+            call.folderResolved(request.uri, start);
+        }
+        Map<String, DriveId> existing = new HashMap<>();
+        String pageToken = null;
+        //big folders come back a page at a time, and a file missed here would be created twice
+        do {
+            Query.Builder builder = new Query.Builder()
+                    .addFilter(Filters.eq(SearchableField.MIME_TYPE, request.mimeType));
+            if (pageToken != null) {
+                builder.setPageToken(pageToken);
+            }
+            MetadataBuffer buffer = queryChildren(folder, builder.build(), call);
+            try {
+                for (int i = 0, count = buffer.getCount(); i < count; i++) {
+                    Metadata metadata = buffer.get(i);
+                    existing.put(metadata.getTitle(), metadata.getDriveId());
+                }
+                pageToken = buffer.getNextPageToken();
+            } finally {
+                buffer.release();
+            }
+        } while (pageToken != null);
+        return new Batch(request.uri, folder, request.mimeType, existing, call);
+    }
+
+    /**
+     * Bodies of a batch are written concurrently, so two with the same title would both create a file
+     *
+     * @throws IllegalArgumentException if two of the bodies have the same title
+     */
+    static void checkUniqueTitles(List<RequestBody> bodies) {
+        Set<String> titles = new HashSet<>();
+        for (RequestBody body : bodies) {
+            String title = body.metadataChangeSet == null ? null : body.metadataChangeSet.getTitle();
+            if (title != null && !titles.add(title)) {
+                throw new IllegalArgumentException("Each body in a batch needs a unique title, but "
+                        + title + " was used more than once");
+            }
+        }
+    }
+
+    /**
+     * Write a single body of a batch. The title of the file comes from the
+     * {@link RequestBody#metadataChangeSet} of the body. Safe to call concurrently.
+     */
+    public DriveId writeBatchItem(Batch batch, RequestBody body) throws IOException {
+        String title = body.metadataChangeSet == null ? null : body.metadataChangeSet.getTitle();
+        if (title == null) {
+            throw new IOException("Each body in a batch needs a title set on its MetadataChangeSet");
+        }
+        String path = batch.uri.buildUpon().appendPath(title).toString();
+        ByteString hash = contentHash(body);
+        if (hash != null) {
+            DriveId unchanged = mContentHashes.getUnchanged(path, batch.mimeType, hash);
+            if (unchanged != null) {
+                return unchanged;
+            }
+        }
+        return writeToFolder(batch.folder, batch.existing.get(title), title, batch.mimeType, body, path, hash,
+                batch.call);
+    }
+
+    /**
+     * Get the digest of the body, or null if unchanged writes are not being skipped or the body
+     * cannot be hashed up front
+     */
+    @Nullable
+    private ByteString contentHash(RequestBody body) {
+        return mContentHashes == null ? null : body.contentHash();
+    }
+
+    private DriveId writeToFolder(DriveFolder folder, @Nullable DriveId fileId, String fileName,
+                                  String mimeType, RequestBody body, String path,
+                                  @Nullable ByteString hash, Call call) throws IOException {
+        DriveContents contents = null;
+        if (fileId != null) {
+            try {
+                contents = open(fileId, DriveFile.MODE_WRITE_ONLY, call);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (!fileId.equals(mFileCache.get(folder.getDriveId(), fileName, mimeType))) {
+                    throw e;
+                }
+                //the file we remembered may be gone, so look it up again
+                mFileCache.remove(folder.getDriveId(), fileName, mimeType);
+                fileId = findTitledFileInFolder(fileName, mimeType, folder, call);
+                if (fileId != null) {
+                    contents = open(fileId, DriveFile.MODE_WRITE_ONLY, call);
+                }
+            }
+        }
+        if (contents == null) {
+            mRateLimiter.acquire(call.deadline, "create contents");
+            contents = await(Drive.DriveApi.newDriveContents(mGoogleApiClient), "create contents", call)
                     .getDriveContents();
         }
-        OutputStream stream = contents.getOutputStream();
-        stream.write(request.requestBody.bytes);
-        stream.close();
+        try {
+            writeBody(contents, body, call);
+        } catch (IOException e) {
+            contents.discard(mGoogleApiClient);
+            throw e;
+        }
         if (fileId != null) {
             //overwriting existing
-            contents.commit(mGoogleApiClient, request.requestBody.metadataChangeSet).await();
+            mRateLimiter.acquire(call.deadline, "commit contents");
+            await(contents.commit(mGoogleApiClient, body.metadataChangeSet), "commit contents", call);
         } else {
             //creating new
-            fileId = folder.createFile(mGoogleApiClient, request.requestBody.metadataChangeSet, contents)
-                    .await()
-                    .getDriveFile()
-                    .getDriveId();
+            mRateLimiter.acquire(call.deadline, "create file");
+            DriveFolder.DriveFileResult result = await(
+                    folder.createFile(mGoogleApiClient, body.metadataChangeSet, contents), "create file", call);
+            fileId = result.getDriveFile().getDriveId();
         }
+        mFileCache.put(folder.getDriveId(), fileName, mimeType, fileId);
+        rememberHash(path, mimeType, hash, fileId);
         return fileId;
     }
 
+    /**
+     * Remember the digest of what was just written to the path. A body which could not be hashed
+     * still changed the file, so whatever was remembered for it before no longer holds.
+     */
+    private void rememberHash(String path, String mimeType, @Nullable ByteString hash, DriveId fileId) {
+        if (mContentHashes == null) {
+            return;
+        }
+        if (hash != null) {
+            mContentHashes.put(path, mimeType, hash, fileId);
+        } else {
+            mContentHashes.remove(path, mimeType);
+            mContentHashes.remove(fileId);
+        }
+    }
+
+    /**
+     * Write the body into the contents, counting the bytes for the call
+     */
+    private static void writeBody(DriveContents contents, RequestBody body, Call call) throws IOException {
+        long start = System.nanoTime();
+        final long[] byteCount = new long[1];
+        BufferedSink sink = Okio.buffer(new ForwardingSink(Okio.sink(contents.getOutputStream())) {
+            @Override
+            public void write(Buffer source, long count) throws IOException {
+                super.write(source, count);
+                byteCount[0] += count;
+            }
+        });
+        body.writeTo(sink);
+        sink.close();
+        call.bodyWritten(byteCount[0], start);
+    }
+
+    /**
+     * Find the file within the folder, preferring the one we found or wrote last time
+     */
+    @Nullable
+    private DriveId findFile(String title, String mimeType, DriveFolder folder, Call call) throws IOException {
+        DriveId fileId = mFileCache.get(folder.getDriveId(), title, mimeType);
+        if (fileId == null) {
+            fileId = findTitledFileInFolder(title, mimeType, folder, call);
+        }
+        return fileId;
+    }
+
+    private DriveContents open(DriveId fileId, int mode, Call call) throws IOException {
+        mRateLimiter.acquire(call.deadline, "open file");
+        return await(fileId.asDriveFile().open(mGoogleApiClient, mode, null), "open file", call)
+                .getDriveContents();
+    }
+
     /**
      * Performs a search and gets resources at the targetted uri
      * @param uri the uri
@@ -76,86 +349,404 @@ class Driver {
      * @throws IOException
      */
     @Nullable
-    public MetadataBuffer read(Request request) throws IOException {
-        DriveFolder folder = getDriveFolder(request.uri, true);
-        if (folder == null) {
-            throw new IOException("Could not fetch folder");
+    public MetadataBuffer read(Request request, Call call) throws IOException {
+        return read(request, null, call);
+    }
+
+    /**
+     * Same as {@link #read(Request, Call)}, but for the page of results the token points at
+     *
+     * @param pageToken the {@link MetadataBuffer#getNextPageToken()} of the page before, or null for the first page
+     */
+    @Nullable
+    public MetadataBuffer read(Request request, @Nullable String pageToken, Call call) throws IOException {
+        Query driveQuery = readQuery(request, pageToken);
+        int folderCount = readFolderCount(request);
+        try {
+            return queryChildren(getDriveFolder(request.uri, folderCount, true, call), driveQuery, call);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            if (!mFolderCache.invalidate(request.uri)) {
+                throw e;
+            }
+            return queryChildren(getDriveFolder(request.uri, folderCount, true, call), driveQuery, call);
         }
+    }
 
-        String fileName = request.uri.getLastPathSegment();
-        Query driveQuery = new Query.Builder()
-                .addFilter(Filters.eq(SearchableField.MIME_TYPE, request.mimeType))
-                .addFilter(Filters.contains(SearchableField.TITLE, fileName))
-                .build();
+    private static Query readQuery(Request request, @Nullable String pageToken) {
+        Query.Builder builder = new Query.Builder()
+                .addFilter(Filters.eq(SearchableField.MIME_TYPE, request.mimeType));
+        //reads of each file want every file of the type within the folder
+        if (!request.each) {
+            builder.addFilter(Filters.contains(SearchableField.TITLE, request.uri.getLastPathSegment()));
+        }
+        if (request.filters != null) {
+            for (Filter filter : request.filters) {
+                builder.addFilter(filter);
+            }
+        }
+        if (pageToken != null) {
+            builder.setPageToken(pageToken);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get how many segments of the uri of the read are folders. Reads of each file within a
+     * folder point at the folder itself, other reads point at a file within the folder.
+     */
+    private static int readFolderCount(Request request) {
+        int segments = request.uri.getPathSegments().size();
+        return request.each ? segments : segments - 1;
+    }
+
+    /**
+     * Same as {@link #write(Request)}, but chains each round trip off of the callback of the one
+     * before it instead of blocking a thread on it. Folders which are not cached yet are still
+     * resolved on a blocking thread, since those lookups are shared with concurrent operations so
+     * that each folder is only created once.
+     */
+    Observable<DriveId> writeAsync(final Request request, final Call call) {
+        final String path = request.uri.toString();
+        final ByteString hash = contentHash(request.requestBody);
+        if (hash != null) {
+            DriveId unchanged = mContentHashes.getUnchanged(path, request.mimeType, hash);
+            if (unchanged != null) {
+                return Observable.just(unchanged);
+            }
+        }
+        final String fileName = request.uri.getLastPathSegment();
+        final String mimeType = request.mimeType;
+        final RequestBody body = request.requestBody;
+        final Func1<DriveFolder, Observable<Upload>> findFile = new Func1<DriveFolder, Observable<Upload>>() {
+            @Override
+            public Observable<Upload> call(final DriveFolder folder) {
+                DriveId fileId = mFileCache.get(folder.getDriveId(), fileName, mimeType);
+                if (fileId != null) {
+                    return Observable.just(new Upload(folder, fileId));
+                }
+                return findTitledFileInFolderAsync(fileName, mimeType, folder, call)
+                        .map(new Func1<DriveId, Upload>() {
+                            @Override
+                            public Upload call(DriveId fileId) {
+                                return new Upload(folder, fileId);
+                            }
+                        });
+            }
+        };
+        return driveFolderAsync(request.uri, call)
+                .flatMap(findFile)
+                .onErrorResumeNext(new Func1<Throwable, Observable<Upload>>() {
+                    @Override
+                    public Observable<Upload> call(Throwable e) {
+                        //a cached folder might have been deleted, so walk the path again before giving up
+                        if (!(e instanceof IOException) || e instanceof InterruptedIOException
+                                || !mFolderCache.invalidate(request.uri)) {
+                            return Observable.error(e);
+                        }
+                        return driveFolderAsync(request.uri, call).flatMap(findFile);
+                    }
+                })
+                .flatMap(new Func1<Upload, Observable<Upload>>() {
+                    @Override
+                    public Observable<Upload> call(Upload upload) {
+                        return openAsync(upload, fileName, mimeType, call);
+                    }
+                })
+                //callbacks arrive on the looper of the client, which is no place to write the body
+                .observeOn(Schedulers.io())
+                .flatMap(new Func1<Upload, Observable<DriveId>>() {
+                    @Override
+                    public Observable<DriveId> call(final Upload upload) {
+                        try {
+                            writeBody(upload.contents, body, call);
+                        } catch (IOException e) {
+                            upload.contents.discard(mGoogleApiClient);
+                            return Observable.error(e);
+                        }
+                        return commitAsync(upload, body.metadataChangeSet, call)
+                                .map(new Func1<DriveId, DriveId>() {
+                                    @Override
+                                    public DriveId call(DriveId fileId) {
+                                        mFileCache.put(upload.folder.getDriveId(), fileName, mimeType, fileId);
+                                        rememberHash(path, mimeType, hash, fileId);
+                                        return fileId;
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Same as {@link #read(Request, Call)}, but without blocking a thread on the query
+     */
+    Observable<MetadataBuffer> readAsync(Request request, Call call) {
+        return readAsync(request, null, call);
+    }
+
+    /**
+     * Same as {@link #read(Request, String, Call)}, but without blocking a thread on the query
+     */
+    Observable<MetadataBuffer> readAsync(final Request request, @Nullable String pageToken, final Call call) {
+        final Query driveQuery = readQuery(request, pageToken);
+        final Func1<DriveFolder, Observable<MetadataBuffer>> query = new Func1<DriveFolder, Observable<MetadataBuffer>>() {
+            @Override
+            public Observable<MetadataBuffer> call(DriveFolder folder) {
+                return queryChildrenAsync(folder, driveQuery, call);
+            }
+        };
+        final int folderCount = readFolderCount(request);
+        return driveFolderAsync(request.uri, folderCount, call)
+                .flatMap(query)
+                .onErrorResumeNext(new Func1<Throwable, Observable<MetadataBuffer>>() {
+                    @Override
+                    public Observable<MetadataBuffer> call(Throwable e) {
+                        if (!(e instanceof IOException) || e instanceof InterruptedIOException
+                                || !mFolderCache.invalidate(request.uri)) {
+                            return Observable.error(e);
+                        }
+                        return driveFolderAsync(request.uri, folderCount, call).flatMap(query);
+                    }
+                });
+    }
+
+    @Nullable
+    @Override
+    public String resolveFolder(Uri folderUri, boolean createIfNotExistent) throws IOException {
+        int folderCount = folderUri.getPathSegments().size();
+        if (folderCount == 0) {
+            return getStartFolder(folderUri).getDriveId().encodeToString();
+        }
+        ResolvedFolder folder = resolveFolder(folderUri, folderCount, createIfNotExistent, newCall(null));
+        return folder == null ? null : folder.driveId.encodeToString();
+    }
+
+    @Override
+    public List<Entry> query(String folderId, @Nullable String title, String mimeType) throws IOException {
+        Query.Builder builder = new Query.Builder()
+                .addFilter(Filters.eq(SearchableField.MIME_TYPE, mimeType));
+        if (title != null) {
+            builder.addFilter(Filters.eq(SearchableField.TITLE, title));
+        }
+        MetadataBuffer buffer = queryChildren(DriveId.decodeFromString(folderId).asDriveFolder(), builder.build(),
+                newCall(null));
+        try {
+            List<Entry> entries = new ArrayList<>(buffer.getCount());
+            for (Metadata metadata : buffer) {
+                entries.add(toEntry(metadata));
+            }
+            return entries;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Override
+    public BufferedSource open(String fileId) throws IOException {
+        return open(fileId, newCall(null));
+    }
 
-        return folder.queryChildren(mGoogleApiClient, driveQuery)
-                .await()
-                .getMetadataBuffer();
+    private BufferedSource open(String fileId, Call call) throws IOException {
+        final DriveContents contents = open(DriveId.decodeFromString(fileId), DriveFile.MODE_READ_ONLY, call);
+        return Okio.buffer(new ForwardingSource(Okio.source(contents.getInputStream())) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                contents.discard(mGoogleApiClient);
+            }
+        });
     }
 
     /**
-     * Get the folder
+     * Open the contents of the file described by the metadata, serving them from the content cache
+     * if the file has not been modified since they were cached
      *
-     * @param uri                 a path to the folder you want, such as app://journals/j365
+     * @param call the call the file is read for, whose deadline opening it has to meet, or null for none
+     */
+    BufferedSource open(Metadata metadata, @Nullable Call call) throws IOException {
+        if (call == null) {
+            call = newCall(null);
+        }
+        String fileId = metadata.getDriveId().encodeToString();
+        if (mContentCache == null) {
+            return open(fileId, call);
+        }
+        long modified = metadata.getModifiedDate().getTime();
+        BufferedSource cached = mContentCache.get(fileId, modified);
+        if (cached != null) {
+            return cached;
+        }
+        return mContentCache.put(fileId, modified, metadata.getFileSize(), open(fileId, call));
+    }
+
+    @Override
+    public Entry write(String folderId, String title, String mimeType, RequestBody body) throws IOException {
+        DriveFolder folder = DriveId.decodeFromString(folderId).asDriveFolder();
+        Call call = newCall(null);
+        DriveId fileId = writeToFolder(folder, findFile(title, mimeType, folder, call), title, mimeType,
+                body, folderId + "/" + title, null, call);
+        return new Entry(fileId.encodeToString(), title, mimeType, -1, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean delete(String fileId) throws IOException {
+        Call call = newCall(null);
+        mRateLimiter.acquire(call.deadline, "delete file");
+        DriveId driveId = DriveId.decodeFromString(fileId);
+        await(driveId.asDriveResource().delete(mGoogleApiClient), "delete file", call);
+        mFileCache.remove(driveId);
+        if (mContentHashes != null) {
+            mContentHashes.remove(driveId);
+        }
+        if (mContentCache != null) {
+            mContentCache.remove(fileId);
+        }
+        return true;
+    }
+
+    static Entry toEntry(Metadata metadata) {
+        return new Entry(metadata.getDriveId().encodeToString(), metadata.getTitle(),
+                metadata.getMimeType(), metadata.getFileSize(), metadata.getModifiedDate().getTime());
+    }
+
+    private MetadataBuffer queryChildren(DriveFolder folder, Query query, Call call) throws IOException {
+        mRateLimiter.acquire(call.deadline, "query folder");
+        return await(folder.queryChildren(mGoogleApiClient, query), "query folder", call).getMetadataBuffer();
+    }
+
+    /**
+     * Wait for the result of a round trip, letting the rate limiter and the call know how it went.
+     * Take a permit from the rate limiter before making the round trip.
+     */
+    private <R extends Result> R await(PendingResult<R> pendingResult, String operation, Call call)
+            throws IOException {
+        long start = System.nanoTime();
+        R result = call.deadline.awaitResult(pendingResult, operation);
+        call.roundTrip(operation, result.getStatus(), start);
+        mRateLimiter.onResult(result.getStatus());
+        Deadline.check(result.getStatus(), operation);
+        return result;
+    }
+
+    /**
+     * Get the folder which contains the resource at the uri. Folders which have already been
+     * resolved are remembered, so only the segments past the deepest cached folder are walked
+     *
+     * @param uri                 a path to the resource you want, such as app://journals/j365/entry
      * @param createIfNotExistent if you want to create all the subfolders if they do not exist along the way
      * @return the folder
      */
     @Nullable
-    private DriveFolder getDriveFolder(Uri uri, boolean createIfNotExistent) {
-        DriveFolder startFolder;
-        Log.d("remove", "Uri: " + uri.toString());
+    private DriveFolder getDriveFolder(Uri uri, boolean createIfNotExistent, Call call) throws IOException {
+        //the last segment is the resource itself
+        return getDriveFolder(uri, uri.getPathSegments().size() - 1, createIfNotExistent, call);
+    }
+
+    /**
+     * Get the folder made up of the first {@code folderCount} segments of the uri
+     */
+    @Nullable
+    private DriveFolder getDriveFolder(Uri uri, int folderCount, boolean createIfNotExistent, Call call)
+            throws IOException {
+        if (folderCount <= 0) {
+            return getStartFolder(uri);
+        }
+        long start = System.nanoTime();
+        ResolvedFolder folder = resolveFolder(uri, folderCount, createIfNotExistent, call);
+        call.folderResolved(uri, start);
+        return folder == null ? null : folder.driveId.asDriveFolder();
+    }
+
+    private DriveFolder getStartFolder(Uri uri) {
         if (Request.SCHEME_FILE.equals(uri.getAuthority())) {
-            startFolder = Drive.DriveApi.getRootFolder(mGoogleApiClient);
+            return Drive.DriveApi.getRootFolder(mGoogleApiClient);
         } else if (Request.SCHEME_APP.equals(uri.getAuthority())) {
-            startFolder = Drive.DriveApi.getAppFolder(mGoogleApiClient);
+            return Drive.DriveApi.getAppFolder(mGoogleApiClient);
         } else {
             //TODO this check should be elsewhere
             throw new IllegalArgumentException("The scheme must be one of `root` or `app`");
         }
-        DriveFolder runnerFolder = startFolder;
-        for (int i = 0; i < uri.getPathSegments().size(); i++) {
-            String path = uri.getPathSegments().get(i);
-            Query folderQuery = new Query.Builder()
-                    .addFilter(Filters.eq(SearchableField.MIME_TYPE, MIME_TYPE_FOLDER))
-                    .addFilter(Filters.eq(SearchableField.TITLE, path))
-                    .build();
-            MetadataBuffer buffer = runnerFolder.queryChildren(mGoogleApiClient, folderQuery)
-                    .await()
-                    .getMetadataBuffer();
-            if (buffer != null && buffer.getCount() > 0) {
-                runnerFolder = buffer.get(0).getDriveId().asDriveFolder();
-                buffer.release();
-            } else {
-                if (createIfNotExistent) {
-                    for (int j = i; j < uri.getPathSegments().size(); j++) {
-                        String title = uri.getPathSegments().get(j);
-                        MetadataChangeSet changeSet = new MetadataChangeSet.Builder()
-                                .setTitle(title)
-                                .setMimeType(MIME_TYPE_FOLDER)
-                                .build();
-                        runnerFolder = runnerFolder.createFolder(mGoogleApiClient, changeSet)
-                                .await()
-                                .getDriveFolder();
-                    }
+    }
+
+    /**
+     * Resolve the folder made up of the first {@code depth} segments of the uri. Concurrent
+     * resolutions of the same folder share a single lookup, so that a burst of writes to a
+     * folder which does not exist yet only creates it once. The lookup runs under the deadline of
+     * whoever started it, and the others wait on it for no longer than their own deadline.
+     */
+    @Nullable
+    private ResolvedFolder resolveFolder(final Uri uri, final int depth, final boolean createIfNotExistent,
+                                         final Call call) throws IOException {
+        final String key = FolderCache.key(uri, depth);
+        DriveId cachedId = mFolderCache.get(key);
+        if (cachedId != null) {
+            return new ResolvedFolder(cachedId, false);
+        }
+        return mFolderCalls.execute(createIfNotExistent ? key : key + "?", new Callable<ResolvedFolder>() {
+            @Override
+            public ResolvedFolder call() throws Exception {
+                //a call which just finished may have already resolved it
+                DriveId cachedId = mFolderCache.get(key);
+                if (cachedId != null) {
+                    return new ResolvedFolder(cachedId, false);
+                }
+                DriveFolder parent;
+                boolean parentCreated = false;
+                if (depth == 1) {
+                    parent = getStartFolder(uri);
                 } else {
+                    ResolvedFolder resolvedParent = resolveFolder(uri, depth - 1, createIfNotExistent, call);
+                    if (resolvedParent == null) {
+                        return null;
+                    }
+                    parent = resolvedParent.driveId.asDriveFolder();
+                    parentCreated = resolvedParent.created;
+                }
+                String title = uri.getPathSegments().get(depth - 1);
+                //no point in looking within a folder we just created
+                if (!parentCreated) {
+                    Query folderQuery = new Query.Builder()
+                            .addFilter(Filters.eq(SearchableField.MIME_TYPE, MIME_TYPE_FOLDER))
+                            .addFilter(Filters.eq(SearchableField.TITLE, title))
+                            .build();
+                    MetadataBuffer buffer = queryChildren(parent, folderQuery, call);
+                    if (buffer != null && buffer.getCount() > 0) {
+                        DriveId driveId = buffer.get(0).getDriveId();
+                        buffer.release();
+                        mFolderCache.put(key, driveId);
+                        return new ResolvedFolder(driveId, false);
+                    }
+                    if (buffer != null) {
+                        buffer.release();
+                    }
+                }
+                if (!createIfNotExistent) {
                     return null;
                 }
-                break;
+                MetadataChangeSet changeSet = new MetadataChangeSet.Builder()
+                        .setTitle(title)
+                        .setMimeType(MIME_TYPE_FOLDER)
+                        .build();
+                mRateLimiter.acquire(call.deadline, "create folder");
+                DriveFolder.DriveFolderResult folderResult = await(
+                        parent.createFolder(mGoogleApiClient, changeSet), "create folder", call);
+                DriveId driveId = folderResult.getDriveFolder().getDriveId();
+                mFolderCache.put(key, driveId);
+                return new ResolvedFolder(driveId, true);
             }
-        }
-        return runnerFolder;
+        }, call.deadline);
     }
 
     @Nullable
-    private DriveId findTitledFileInFolder(String title, String mimeType, DriveFolder folder) {
+    private DriveId findTitledFileInFolder(String title, String mimeType, DriveFolder folder, Call call)
+            throws IOException {
         Query driveQuery = new Query.Builder()
                 .addFilter(Filters.eq(SearchableField.TITLE, title))
                 .addFilter(Filters.eq(SearchableField.MIME_TYPE, mimeType))
                 .build();
 
-        MetadataBuffer buffer = folder.queryChildren(mGoogleApiClient, driveQuery)
-                .await()
-                .getMetadataBuffer();
+        MetadataBuffer buffer = queryChildren(folder, driveQuery, call);
         if (buffer != null && buffer.getCount() > 0) {
             DriveId driveId = buffer.get(0).getDriveId();
             buffer.release();
@@ -167,4 +758,200 @@ class Driver {
         }
         return null;
     }
+
+    private Observable<MetadataBuffer> queryChildrenAsync(final DriveFolder folder, final Query query,
+                                                          Call call) {
+        return PendingResults.toObservable(new Func0<PendingResult<DriveApi.MetadataBufferResult>>() {
+            @Override
+            public PendingResult<DriveApi.MetadataBufferResult> call() {
+                return folder.queryChildren(mGoogleApiClient, query);
+            }
+        }, "query folder", call, mRateLimiter).map(new Func1<DriveApi.MetadataBufferResult, MetadataBuffer>() {
+            @Override
+            public MetadataBuffer call(DriveApi.MetadataBufferResult result) {
+                return result.getMetadataBuffer();
+            }
+        });
+    }
+
+    /**
+     * Emits the id of the file, or null if there is no such file
+     */
+    private Observable<DriveId> findTitledFileInFolderAsync(String title, String mimeType, DriveFolder folder,
+                                                            Call call) {
+        Query driveQuery = new Query.Builder()
+                .addFilter(Filters.eq(SearchableField.TITLE, title))
+                .addFilter(Filters.eq(SearchableField.MIME_TYPE, mimeType))
+                .build();
+        return queryChildrenAsync(folder, driveQuery, call)
+                .map(new Func1<MetadataBuffer, DriveId>() {
+                    @Override
+                    public DriveId call(MetadataBuffer buffer) {
+                        try {
+                            return buffer.getCount() > 0 ? buffer.get(0).getDriveId() : null;
+                        } finally {
+                            buffer.release();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Get the folder which contains the resource at the uri, without blocking if it is cached
+     */
+    private Observable<DriveFolder> driveFolderAsync(Uri uri, Call call) {
+        return driveFolderAsync(uri, uri.getPathSegments().size() - 1, call);
+    }
+
+    /**
+     * Get the folder made up of the first {@code folderCount} segments of the uri, without
+     * blocking if it is cached
+     */
+    private Observable<DriveFolder> driveFolderAsync(final Uri uri, final int folderCount, final Call call) {
+        if (folderCount <= 0) {
+            return Observable.just(getStartFolder(uri));
+        }
+        DriveId cachedId = mFolderCache.get(FolderCache.key(uri, folderCount));
+        if (cachedId != null) {
+            return Observable.just(cachedId.asDriveFolder());
+        }
+        return Observable.defer(new Func0<Observable<DriveFolder>>() {
+            @Override
+            public Observable<DriveFolder> call() {
+                try {
+                    return Observable.just(getDriveFolder(uri, folderCount, true, call));
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+            }
+        }).subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Open the contents of the file to upload, or new contents if there is no file yet
+     */
+    private Observable<Upload> openAsync(final Upload upload, final String fileName, final String mimeType,
+                                         final Call call) {
+        if (upload.fileId == null) {
+            return PendingResults.toObservable(new Func0<PendingResult<DriveApi.DriveContentsResult>>() {
+                @Override
+                public PendingResult<DriveApi.DriveContentsResult> call() {
+                    return Drive.DriveApi.newDriveContents(mGoogleApiClient);
+                }
+            }, "create contents", call, mRateLimiter).map(upload.withContents());
+        }
+        return PendingResults.toObservable(new Func0<PendingResult<DriveApi.DriveContentsResult>>() {
+            @Override
+            public PendingResult<DriveApi.DriveContentsResult> call() {
+                return upload.fileId.asDriveFile().open(mGoogleApiClient, DriveFile.MODE_WRITE_ONLY, null);
+            }
+        }, "open file", call, mRateLimiter).map(upload.withContents())
+                .onErrorResumeNext(new Func1<Throwable, Observable<Upload>>() {
+                    @Override
+                    public Observable<Upload> call(Throwable e) {
+                        final DriveFolder folder = upload.folder;
+                        if (e instanceof InterruptedIOException
+                                || !upload.fileId.equals(mFileCache.get(folder.getDriveId(), fileName, mimeType))) {
+                            return Observable.error(e);
+                        }
+                        //the file we remembered may be gone, so look it up again
+                        mFileCache.remove(folder.getDriveId(), fileName, mimeType);
+                        return findTitledFileInFolderAsync(fileName, mimeType, folder, call)
+                                .flatMap(new Func1<DriveId, Observable<Upload>>() {
+                                    @Override
+                                    public Observable<Upload> call(DriveId fileId) {
+                                        return openAsync(new Upload(folder, fileId), fileName, mimeType, call);
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * Commit the written contents over the existing file, or create the file with them
+     */
+    private Observable<DriveId> commitAsync(final Upload upload, final MetadataChangeSet changeSet,
+                                            Call call) {
+        if (upload.fileId != null) {
+            return PendingResults.toObservable(new Func0<PendingResult<Status>>() {
+                @Override
+                public PendingResult<Status> call() {
+                    return upload.contents.commit(mGoogleApiClient, changeSet);
+                }
+            }, "commit contents", call, mRateLimiter).map(new Func1<Status, DriveId>() {
+                @Override
+                public DriveId call(Status status) {
+                    return upload.fileId;
+                }
+            });
+        }
+        return PendingResults.toObservable(new Func0<PendingResult<DriveFolder.DriveFileResult>>() {
+            @Override
+            public PendingResult<DriveFolder.DriveFileResult> call() {
+                return upload.folder.createFile(mGoogleApiClient, changeSet, upload.contents);
+            }
+        }, "create file", call, mRateLimiter).map(new Func1<DriveFolder.DriveFileResult, DriveId>() {
+            @Override
+            public DriveId call(DriveFolder.DriveFileResult result) {
+                return result.getDriveFile().getDriveId();
+            }
+        });
+    }
+
+    /**
+     * A folder along with whether or not we just created it
+     */
+    private static class ResolvedFolder {
+        final DriveId driveId;
+        final boolean created;
+
+        ResolvedFolder(DriveId driveId, boolean created) {
+            this.driveId = driveId;
+            this.created = created;
+        }
+    }
+
+    /**
+     * The state of a non-blocking write as it goes from lookup to upload
+     */
+    private static class Upload {
+        final DriveFolder folder;
+        @Nullable
+        final DriveId fileId;
+        DriveContents contents;
+
+        Upload(DriveFolder folder, @Nullable DriveId fileId) {
+            this.folder = folder;
+            this.fileId = fileId;
+        }
+
+        Func1<DriveApi.DriveContentsResult, Upload> withContents() {
+            return new Func1<DriveApi.DriveContentsResult, Upload>() {
+                @Override
+                public Upload call(DriveApi.DriveContentsResult result) {
+                    contents = result.getDriveContents();
+                    return Upload.this;
+                }
+            };
+        }
+    }
+
+    /**
+     * The folder a batch writes into, along with the files which were already in it
+     */
+    static class Batch {
+        final Uri uri;
+        final DriveFolder folder;
+        final String mimeType;
+        final Map<String, DriveId> existing;
+        final Call call;
+
+        Batch(Uri uri, DriveFolder folder, String mimeType, Map<String, DriveId> existing, Call call) {
+            this.uri = uri;
+            this.folder = folder;
+            this.mimeType = mimeType;
+            this.existing = existing;
+            this.call = call;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.common.api.Status;
+
+import java.lang.reflect.Method;
+
+/**
+ * Listens for the phases of each service method invocation, along with how long each took, to
+ * find out what Zapdos calls cost. Override the methods you are interested in. Methods are called
+ * on whichever thread the phase ran on, so keep them fast and thread safe.
+ * <p>
+ * The service method is null for calls made through the {@link Backend} methods of the driver.
+ * See {@link Metrics} for a listener which aggregates all of this per service method.
+ */
+public abstract class EventListener {
+
+    /**
+     * Listens to nothing
+     */
+    public static final EventListener NONE = new EventListener() {
+    };
+
+    /**
+     * The service method was looked up, which means parsing its annotations unless it was cached
+     */
+    public void serviceMethodLoaded(Method method, boolean cached, long durationNanos) {
+    }
+
+    /**
+     * The arguments of the invocation were turned into a request
+     */
+    public void requestBuilt(Method method, long durationNanos) {
+    }
+
+    /**
+     * The folder the request points into was resolved, which takes a round trip for each folder
+     * along the path which was not cached
+     */
+    public void folderResolved(@Nullable Method method, Uri uri, long durationNanos) {
+    }
+
+    /**
+     * A single round trip to Drive finished, successfully or not
+     *
+     * @param operation what the round trip did, such as "query folder", "open file" or "commit contents"
+     */
+    public void roundTrip(@Nullable Method method, String operation, Status status, long durationNanos) {
+    }
+
+    /**
+     * A request body was written into the contents of a file
+     */
+    public void bodyWritten(@Nullable Method method, long byteCount, long durationNanos) {
+    }
+
+    /**
+     * The contents of a file were read by a {@link SourceConverter}, from Drive or from the
+     * content cache. The duration includes parsing them.
+     */
+    public void bodyRead(@Nullable Method method, long byteCount, long durationNanos) {
+    }
+
+    /**
+     * The result of a read was converted by its {@link Converter}, which includes reading the
+     * contents of the file
+     */
+    public void converted(@Nullable Method method, long durationNanos) {
+    }
+
+    /**
+     * The invocation finished, successfully or not
+     *
+     * @param roundTrips   how many round trips to Drive it took
+     * @param bytesWritten how many bytes of request bodies it wrote
+     * @param error        what it failed with, or null if it succeeded
+     */
+    public void callEnd(@Nullable Method method, long durationNanos, int roundTrips, long bytesWritten,
+                        @Nullable Throwable error) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.google.android.gms.drive.DriveId;
+
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the files we have already found or written within a folder, so that
+ * rewriting a file can open it directly instead of querying for it by title
+ */
+class FileCache {
+
+    static final int DEFAULT_MAX_SIZE = 128;
+
+    private final LruCache<Key, DriveId> mCache;
+
+    FileCache(int maxSize) {
+        mCache = new LruCache<>(maxSize);
+    }
+
+    @Nullable
+    DriveId get(DriveId folderId, String title, String mimeType) {
+        return mCache.get(new Key(folderId, title, mimeType));
+    }
+
+    void put(DriveId folderId, String title, String mimeType, DriveId fileId) {
+        mCache.put(new Key(folderId, title, mimeType), fileId);
+    }
+
+    void remove(DriveId folderId, String title, String mimeType) {
+        mCache.remove(new Key(folderId, title, mimeType));
+    }
+
+    /**
+     * Forget the file wherever it was found, such as once it has been deleted
+     */
+    void remove(DriveId fileId) {
+        for (Map.Entry<Key, DriveId> entry : mCache.snapshot().entrySet()) {
+            if (entry.getValue().equals(fileId)) {
+                mCache.remove(entry.getKey());
+            }
+        }
+    }
+
+    void clear() {
+        mCache.evictAll();
+    }
+
+    private static final class Key {
+        final DriveId folderId;
+        final String title;
+        final String mimeType;
+
+        Key(DriveId folderId, String title, String mimeType) {
+            this.folderId = folderId;
+            this.title = title;
+            this.mimeType = mimeType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return folderId.equals(other.folderId)
+                    && title.equals(other.title)
+                    && mimeType.equals(other.mimeType);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = folderId.hashCode();
+            result = 31 * result + title.hashCode();
+            result = 31 * result + mimeType.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import com.google.android.gms.drive.DriveId;
+
+import java.util.List;
+
+/**
+ * Bounded LRU cache of resolved folder paths, such as {@code app/journals/j365}, to the
+ * {@link DriveId} of that folder, so that repeat operations can skip walking the path
+ */
+class FolderCache {
+
+    static final int DEFAULT_MAX_SIZE = 64;
+
+    private final LruCache<String, DriveId> mCache;
+
+    FolderCache(int maxSize) {
+        mCache = new LruCache<>(maxSize);
+    }
+
+    @Nullable
+    DriveId get(String path) {
+        return mCache.get(path);
+    }
+
+    void put(String path, DriveId driveId) {
+        mCache.put(path, driveId);
+    }
+
+    /**
+     * Drop every cached folder along the path of the uri, as well as anything beneath them
+     * @param uri the uri which failed to resolve
+     * @return true if anything was removed
+     */
+    boolean invalidate(Uri uri) {
+        if (uri.getPathSegments().isEmpty()) {
+            return false;
+        }
+        String root = key(uri, 1);
+        boolean removed = false;
+        for (String path : mCache.snapshot().keySet()) {
+            if (path.equals(root) || path.startsWith(root + "/")) {
+                removed |= mCache.remove(path) != null;
+            }
+        }
+        return removed;
+    }
+
+    void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Get the cache key for the first {@code depth} path segments of the uri
+     */
+    static String key(Uri uri, int depth) {
+        List<String> segments = uri.getPathSegments();
+        StringBuilder builder = new StringBuilder(uri.getAuthority());
+        for (int i = 0; i < depth; i++) {
+            builder.append('/').append(segments.get(i));
+        }
+        return builder.toString();
+    }
+}
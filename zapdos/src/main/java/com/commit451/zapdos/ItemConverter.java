@@ -0,0 +1,18 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.drive.Metadata;
+import com.google.android.gms.drive.MetadataBuffer;
+
+import java.io.IOException;
+
+/**
+ * A {@link Converter} which can also convert a single file of a {@link MetadataBuffer}, so that
+ * methods annotated with {@link com.commit451.zapdos.drive.Each} can emit every file on its own
+ */
+public interface ItemConverter<T> extends Converter<MetadataBuffer, T> {
+
+    /**
+     * Convert the file described by the metadata
+     */
+    T convert(Metadata metadata) throws IOException;
+}
@@ -0,0 +1,144 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * A {@link Backend} which keeps everything within a local directory, useful for working offline
+ * and for measuring how much time is spent within Zapdos itself rather than waiting on Drive.
+ * Ids are paths relative to the directory. Mime types are not stored, so queries only match on title.
+ */
+public class LocalBackend implements Backend {
+
+    //reserved, so that files being written can never be mistaken for real ones
+    private static final String TEMP_PREFIX = ".zapdos-write-";
+
+    private final File mDirectory;
+
+    public LocalBackend(File directory) {
+        mDirectory = Utils.checkNotNull(directory, "directory == null");
+    }
+
+    @Nullable
+    @Override
+    public String resolveFolder(Uri folderUri, boolean createIfNotExistent) throws IOException {
+        StringBuilder id = new StringBuilder(folderUri.getAuthority());
+        for (String segment : folderUri.getPathSegments()) {
+            id.append('/').append(checkName(segment));
+        }
+        File folder = file(id.toString());
+        if (!folder.isDirectory()) {
+            if (!createIfNotExistent) {
+                return null;
+            }
+            if (!folder.mkdirs() && !folder.isDirectory()) {
+                throw new IOException("Failed to create folder " + folder);
+            }
+        }
+        return id.toString();
+    }
+
+    @Override
+    public List<Entry> query(String folderId, @Nullable String title, String mimeType) throws IOException {
+        if (title != null) {
+            File file = file(folderId + "/" + checkName(title));
+            if (!file.isFile()) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(toEntry(folderId, file, mimeType));
+        }
+        File[] files = file(folderId).listFiles();
+        if (files == null) {
+            throw new IOException("Failed to list folder " + folderId);
+        }
+        List<Entry> entries = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.isFile() && !file.getName().startsWith(TEMP_PREFIX)) {
+                entries.add(toEntry(folderId, file, mimeType));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public BufferedSource open(String fileId) throws IOException {
+        FileChannel channel = new RandomAccessFile(file(fileId), "r").getChannel();
+        return Okio.buffer(Okio.source(Channels.newInputStream(channel)));
+    }
+
+    @Override
+    public Entry write(String folderId, String title, String mimeType, RequestBody body) throws IOException {
+        File target = file(folderId + "/" + checkName(title));
+        //write next to the target and then move it into place, so readers never see half a file.
+        //Each write gets its own temp file, so concurrent writes to the same title never share one
+        File temp = File.createTempFile(TEMP_PREFIX, null, target.getParentFile());
+        boolean moved = false;
+        try {
+            FileChannel channel = new FileOutputStream(temp).getChannel();
+            BufferedSink sink = Okio.buffer(Okio.sink(Channels.newOutputStream(channel)));
+            try {
+                body.writeTo(sink);
+                sink.flush();
+                channel.force(false);
+            } finally {
+                sink.close();
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("Failed to move " + temp + " to " + target);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                //noinspection ResultOfMethodCallIgnored
+                temp.delete();
+            }
+        }
+        return toEntry(folderId, target, mimeType);
+    }
+
+    @Override
+    public boolean delete(String fileId) throws IOException {
+        return file(fileId).delete();
+    }
+
+    /**
+     * Get the file with the id, checking each of its segments so that ids passed back in, such as
+     * to {@link #open(String)}, cannot escape the directory either
+     */
+    private File file(String id) {
+        for (String segment : id.split("/", -1)) {
+            checkName(segment);
+        }
+        return new File(mDirectory, id);
+    }
+
+    private static Entry toEntry(String folderId, File file, String mimeType) {
+        return new Entry(folderId + "/" + file.getName(), file.getName(), mimeType, file.length(),
+                file.lastModified());
+    }
+
+    /**
+     * Make sure a path segment cannot escape the directory, nor be taken for a file being written
+     */
+    private static String checkName(String name) {
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.indexOf('/') != -1
+                || name.indexOf(File.separatorChar) != -1 || name.startsWith(TEMP_PREFIX)) {
+            throw new IllegalArgumentException("Invalid file or folder name: " + name);
+        }
+        return name;
+    }
+}
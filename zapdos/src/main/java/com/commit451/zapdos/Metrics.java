@@ -0,0 +1,280 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventListener} which keeps counters and a latency histogram for each service method.
+ * Pass it to {@link Zapdos.Builder#eventListener(EventListener)}, then {@link #snapshot()} or
+ * {@link #dump()} it whenever you want to see where the time went.
+ */
+public class Metrics extends EventListener {
+
+    //calls made through Backend have no service method, so they are tallied together
+    private static final String BACKEND = "Backend";
+
+    private final ConcurrentHashMap<Method, MethodMetrics> mMethods = new ConcurrentHashMap<>();
+    private final MethodMetrics mBackend = new MethodMetrics(BACKEND);
+
+    @Override
+    public void folderResolved(@Nullable Method method, Uri uri, long durationNanos) {
+        metricsFor(method).addFolderNanos(durationNanos);
+    }
+
+    @Override
+    public void bodyRead(@Nullable Method method, long byteCount, long durationNanos) {
+        metricsFor(method).addBytesRead(byteCount);
+    }
+
+    @Override
+    public void converted(@Nullable Method method, long durationNanos) {
+        metricsFor(method).addConversionNanos(durationNanos);
+    }
+
+    @Override
+    public void callEnd(@Nullable Method method, long durationNanos, int roundTrips, long bytesWritten,
+                        @Nullable Throwable error) {
+        metricsFor(method).record(durationNanos, roundTrips, bytesWritten, error != null);
+    }
+
+    /**
+     * Get a copy of the metrics of every service method which has been called so far
+     */
+    public List<MethodMetrics> snapshot() {
+        List<MethodMetrics> snapshot = new ArrayList<>(mMethods.size() + 1);
+        for (MethodMetrics metrics : mMethods.values()) {
+            snapshot.add(metrics.copy());
+        }
+        MethodMetrics backend = mBackend.copy();
+        if (backend.getCount() > 0) {
+            snapshot.add(backend);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get the metrics as text, one line per service method, such as for logging
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (MethodMetrics metrics : snapshot()) {
+            builder.append(metrics).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        mMethods.clear();
+        mBackend.clear();
+    }
+
+    private MethodMetrics metricsFor(@Nullable Method method) {
+        if (method == null) {
+            return mBackend;
+        }
+        MethodMetrics metrics = mMethods.get(method);
+        if (metrics == null) {
+            metrics = new MethodMetrics(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+            MethodMetrics existing = mMethods.putIfAbsent(method, metrics);
+            if (existing != null) {
+                metrics = existing;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * The metrics of a single service method. Latencies are bucketed by powers of two
+     * milliseconds, so percentiles are accurate to within a factor of two.
+     */
+    public static final class MethodMetrics {
+
+        static final int BUCKET_COUNT = 24;
+
+        private final String mName;
+        //guarded by this
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mFailures;
+        private long mRoundTrips;
+        private long mBytesWritten;
+        private long mBytesRead;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mFolderNanos;
+        private long mConversionNanos;
+
+        MethodMetrics(String name) {
+            mName = name;
+        }
+
+        synchronized void record(long durationNanos, int roundTrips, long bytesWritten, boolean failed) {
+            mBuckets[bucket(durationNanos)]++;
+            mCount++;
+            if (failed) {
+                mFailures++;
+            }
+            mRoundTrips += roundTrips;
+            mBytesWritten += bytesWritten;
+            mTotalNanos += durationNanos;
+            mMaxNanos = Math.max(mMaxNanos, durationNanos);
+        }
+
+        synchronized void addFolderNanos(long durationNanos) {
+            mFolderNanos += durationNanos;
+        }
+
+        synchronized void addConversionNanos(long durationNanos) {
+            mConversionNanos += durationNanos;
+        }
+
+        synchronized void addBytesRead(long byteCount) {
+            mBytesRead += byteCount;
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mFailures = 0;
+            mRoundTrips = 0;
+            mBytesWritten = 0;
+            mBytesRead = 0;
+            mTotalNanos = 0;
+            mMaxNanos = 0;
+            mFolderNanos = 0;
+            mConversionNanos = 0;
+        }
+
+        synchronized MethodMetrics copy() {
+            MethodMetrics copy = new MethodMetrics(mName);
+            System.arraycopy(mBuckets, 0, copy.mBuckets, 0, BUCKET_COUNT);
+            copy.mCount = mCount;
+            copy.mFailures = mFailures;
+            copy.mRoundTrips = mRoundTrips;
+            copy.mBytesWritten = mBytesWritten;
+            copy.mBytesRead = mBytesRead;
+            copy.mTotalNanos = mTotalNanos;
+            copy.mMaxNanos = mMaxNanos;
+            copy.mFolderNanos = mFolderNanos;
+            copy.mConversionNanos = mConversionNanos;
+            return copy;
+        }
+
+        /**
+         * The name of the service method, such as {@code SampleDrive.read}
+         */
+        public String getName() {
+            return mName;
+        }
+
+        public synchronized long getCount() {
+            return mCount;
+        }
+
+        public synchronized long getFailures() {
+            return mFailures;
+        }
+
+        public synchronized long getRoundTrips() {
+            return mRoundTrips;
+        }
+
+        public synchronized long getBytesWritten() {
+            return mBytesWritten;
+        }
+
+        /**
+         * The total size of the file contents read by converters, from Drive or from the content cache
+         */
+        public synchronized long getBytesRead() {
+            return mBytesRead;
+        }
+
+        public synchronized long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(mTotalNanos);
+        }
+
+        public synchronized long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(mMaxNanos);
+        }
+
+        /**
+         * The total time spent resolving folders
+         */
+        public synchronized long getFolderMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(mFolderNanos);
+        }
+
+        /**
+         * The total time spent converting results, which includes reading file contents
+         */
+        public synchronized long getConversionMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(mConversionNanos);
+        }
+
+        /**
+         * Get the count of calls in each latency bucket. Bucket 0 holds calls under a millisecond,
+         * and bucket i holds calls which took from 2^(i-1) up to 2^i milliseconds. The last
+         * bucket also holds everything slower.
+         */
+        public synchronized long[] getHistogram() {
+            return mBuckets.clone();
+        }
+
+        /**
+         * Get the latency under which the fraction of calls completed
+         *
+         * @param percentile from 0 to 1, such as 0.99
+         * @return the upper bound of the bucket the percentile falls in, in milliseconds
+         */
+        public synchronized long getPercentileMillis(double percentile) {
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * mCount);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKET_COUNT - 1);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return mName
+                    + ": count=" + mCount
+                    + " failures=" + mFailures
+                    + " p50=" + getPercentileMillis(0.5) + "ms"
+                    + " p90=" + getPercentileMillis(0.9) + "ms"
+                    + " p99=" + getPercentileMillis(0.99) + "ms"
+                    + " max=" + getMaxMillis() + "ms"
+                    + " folders=" + getFolderMillis() + "ms"
+                    + " conversion=" + getConversionMillis() + "ms"
+                    + " roundTrips=" + mRoundTrips
+                    + " bytesWritten=" + mBytesWritten
+                    + " bytesRead=" + mBytesRead;
+        }
+
+        private static int bucket(long durationNanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            if (millis < 1) {
+                return 0;
+            }
+            return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(millis));
+        }
+    }
+}
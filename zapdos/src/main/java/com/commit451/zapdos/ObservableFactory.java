@@ -1,51 +1,513 @@
 package com.commit451.zapdos;
 
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
 import com.google.android.gms.drive.DriveId;
 import com.google.android.gms.drive.MetadataBuffer;
 
 import java.io.IOException;
+import java.util.List;
 
 import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Action1;
 import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.functions.Func2;
+import rx.schedulers.Schedulers;
 
 /**
  * Creates {@link rx.Observable}s from {@link ServiceMethod}s
  */
 public class ObservableFactory {
 
-    public static Observable<DriveId> create(final Driver driver, final Request request) {
+    /**
+     * Write the body of the request to its path
+     *
+     * @param deadline the deadline of the operation, shared by every attempt
+     */
+    public static Observable<DriveId> create(final Driver driver, final Request request, final Deadline deadline) {
         return Observable.defer(new Func0<Observable<DriveId>>() {
             @Override
             public Observable<DriveId> call() {
+                Call call = driver.newCall(request, deadline);
                 try {
-                    return Observable.just(driver.write(request));
-                } catch (IOException e) {
+                    DriveId fileId = driver.write(request, call);
+                    call.end(null);
+                    return Observable.just(fileId);
+                } catch (IOException | RuntimeException e) {
+                    call.end(e);
                     return Observable.error(e);
                 }
             }
         });
     }
 
-    public static <T> Observable<T> read(final Driver driver, final Request request, final ServiceMethod<T> serviceMethod) {
+    /**
+     * Same as {@link #create(Driver, Request, Deadline)}, but no thread is blocked while waiting on Drive
+     */
+    public static Observable<DriveId> createAsync(final Driver driver, final Request request,
+                                                  final Deadline deadline) {
+        return Observable.defer(new Func0<Observable<DriveId>>() {
+            @Override
+            public Observable<DriveId> call() {
+                Call call = driver.newCall(request, deadline);
+                return ending(driver.writeAsync(request, call), call);
+            }
+        });
+    }
+
+    /**
+     * Write every body of a batch request into its folder, resolving the folder and listing its
+     * files only once. Up to {@code maxConcurrent} bodies are uploaded at a time, and their
+     * {@link DriveId}s are emitted as they complete. Bodies which fail are retried on their own,
+     * as a single write which looks its file up again, since the listing may be out of date by then.
+     * Every body shares the deadline of the batch.
+     */
+    public static Observable<DriveId> createBatch(final Driver driver, final Request request, final Deadline deadline,
+                                                  final int maxConcurrent, final RetryPolicy retryPolicy,
+                                                  final int maxRetries) {
+        return Observable.defer(new Func0<Observable<DriveId>>() {
+            @Override
+            public Observable<DriveId> call() {
+                final Call call = driver.newCall(request, deadline);
+                final Driver.Batch batch;
+                try {
+                    batch = driver.prepareBatch(request, call);
+                } catch (IOException | RuntimeException e) {
+                    call.end(e);
+                    return Observable.error(e);
+                }
+                return ending(Observable.from(request.requestBodies)
+                        .flatMap(new Func1<RequestBody, Observable<DriveId>>() {
+                            @Override
+                            public Observable<DriveId> call(final RequestBody body) {
+                                Observable<DriveId> write = Observable.defer(new Func0<Observable<DriveId>>() {
+                                    private boolean mRetrying;
+
+                                    @Override
+                                    public Observable<DriveId> call() {
+                                        try {
+                                            if (!mRetrying) {
+                                                mRetrying = true;
+                                                return Observable.just(driver.writeBatchItem(batch, body));
+                                            }
+                                            return Observable.just(driver.write(batchItemRequest(request, body), deadline));
+                                        } catch (IOException e) {
+                                            return Observable.error(e);
+                                        }
+                                    }
+                                }).subscribeOn(Schedulers.io());
+                                return retryPolicy.apply(write, maxRetries);
+                            }
+                        }, maxConcurrent), call);
+            }
+        });
+    }
+
+    /**
+     * Get a single write of the body to its own path within the folder of the batch
+     */
+    private static Request batchItemRequest(Request batch, RequestBody body) {
+        Request request = new Request(batch.uri.buildUpon().appendPath(body.metadataChangeSet.getTitle()).build(),
+                Driver.METHOD_CREATE, body);
+        request.mimeType = batch.mimeType;
+        request.timeoutMillis = batch.timeoutMillis;
+        request.javaMethod = batch.javaMethod;
+        return request;
+    }
+
+    /**
+     * Read the file at the path of the request
+     *
+     * @param deadline the deadline of the operation, shared by every attempt
+     */
+    public static <T> Observable<T> read(final Driver driver, final Request request, final Deadline deadline,
+                                         final ServiceMethod<T> serviceMethod) {
         return Observable.defer(new Func0<Observable<T>>() {
             @Override
             public Observable<T> call() {
+                Call call = driver.newCall(request, deadline);
                 try {
-                    return Observable.just(blah(driver, serviceMethod, request));
+                    T response = blah(driver, serviceMethod, request, call);
+                    call.end(null);
+                    return Observable.just(response);
+                } catch (IOException | RuntimeException e) {
+                    call.end(e);
+                    return Observable.error(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #read(Driver, Request, Deadline, ServiceMethod)}, but no thread is blocked while
+     * querying. Conversion still happens on the io scheduler, since converters read the contents
+     * of the file as a stream.
+     */
+    public static <T> Observable<T> readAsync(final Driver driver, final Request request, final Deadline deadline,
+                                              final ServiceMethod<T> serviceMethod) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                final Call call = driver.newCall(request, deadline);
+                return ending(driver.readAsync(request, call)
+                        .observeOn(Schedulers.io())
+                        .flatMap(new Func1<MetadataBuffer, Observable<T>>() {
+                            @Override
+                            public Observable<T> call(MetadataBuffer buffer) {
+                                long start = System.nanoTime();
+                                try {
+                                    T response = serviceMethod.toResponse(buffer, call);
+                                    call.converted(start);
+                                    return Observable.just(response);
+                                } catch (IOException e) {
+                                    return Observable.error(e);
+                                } finally {
+                                    buffer.release();
+                                }
+                            }
+                        }), call);
+            }
+        });
+    }
+
+    /**
+     * Read every file within the folder of the request, emitting each as it is converted. Files
+     * are listed a page at a time, and each is converted only once it is requested downstream,
+     * so a slow consumer never has more than it asked for opened at once. The next page is only
+     * queried once every file of the page before it has been requested, and each page is
+     * released once its files have been emitted, so memory stays flat however big the folder
+     * gets. Only the queries are retried, since retrying once files have been emitted would
+     * emit them again. Each page is reported as its own call.
+     */
+    public static <T> Observable<T> readEach(final Driver driver, final Request request,
+                                             final ServiceMethod<T> serviceMethod,
+                                             RetryPolicy retryPolicy, int maxRetries) {
+        Func2<String, Deadline, Observable<Listing>> query = new Func2<String, Deadline, Observable<Listing>>() {
+            @Override
+            public Observable<Listing> call(final String pageToken, final Deadline deadline) {
+                return Observable.defer(new Func0<Observable<Listing>>() {
+                    @Override
+                    public Observable<Listing> call() {
+                        Call call = driver.newCall(request, deadline);
+                        try {
+                            return Observable.just(new Listing(driver.read(request, pageToken, call), call));
+                        } catch (IOException | RuntimeException e) {
+                            call.end(e);
+                            return Observable.error(e);
+                        }
+                    }
+                });
+            }
+        };
+        return pages(request, query, serviceMethod, retryPolicy, maxRetries);
+    }
+
+    /**
+     * Same as {@link #readEach(Driver, Request, ServiceMethod, RetryPolicy, int)}, but no thread
+     * is blocked while querying
+     */
+    public static <T> Observable<T> readEachAsync(final Driver driver, final Request request,
+                                                  final ServiceMethod<T> serviceMethod,
+                                                  RetryPolicy retryPolicy, int maxRetries) {
+        Func2<String, Deadline, Observable<Listing>> query = new Func2<String, Deadline, Observable<Listing>>() {
+            @Override
+            public Observable<Listing> call(final String pageToken, final Deadline deadline) {
+                return Observable.defer(new Func0<Observable<Listing>>() {
+                    @Override
+                    public Observable<Listing> call() {
+                        final Call call = driver.newCall(request, deadline);
+                        return driver.readAsync(request, pageToken, call)
+                                .map(new Func1<MetadataBuffer, Listing>() {
+                                    @Override
+                                    public Listing call(MetadataBuffer buffer) {
+                                        return new Listing(buffer, call);
+                                    }
+                                })
+                                .doOnError(new Action1<Throwable>() {
+                                    @Override
+                                    public void call(Throwable e) {
+                                        call.end(e);
+                                    }
+                                })
+                                //converters read the contents of the files as a stream
+                                .observeOn(Schedulers.io());
+                    }
+                });
+            }
+        };
+        return pages(request, query, serviceMethod, retryPolicy, maxRetries);
+    }
+
+    /**
+     * Emit each file of every page, a page at a time. The next page is queried once the one before
+     * it has completed, so pages are a loop rather than nested within each other. Each page gets
+     * its own deadline, shared by the retries of its query.
+     *
+     * @param query queries the page the token points at, or the first page for a null token, under
+     *              the deadline of the page, once per subscription
+     */
+    private static <T> Observable<T> pages(final Request request, final Func2<String, Deadline, Observable<Listing>> query,
+                                           final ServiceMethod<T> serviceMethod, final RetryPolicy retryPolicy,
+                                           final int maxRetries) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                //the token of the page to query next, null for the first page and once there are no more
+                final String[] pageToken = new String[1];
+                return Observable.defer(new Func0<Observable<Listing>>() {
+                    @Override
+                    public Observable<Listing> call() {
+                        Deadline deadline = Deadline.after(request.timeoutMillis);
+                        return retryPolicy.apply(query.call(pageToken[0], deadline), maxRetries);
+                    }
+                })
+                        .concatMap(new Func1<Listing, Observable<T>>() {
+                            @Override
+                            public Observable<T> call(Listing listing) {
+                                if (listing.buffer == null) {
+                                    pageToken[0] = null;
+                                    listing.call.end(null);
+                                    return Observable.empty();
+                                }
+                                //the token goes away with the buffer
+                                pageToken[0] = listing.buffer.getNextPageToken();
+                                return ending(each(listing.buffer, serviceMethod, listing.call), listing.call);
+                            }
+                        })
+                        //only resubscribes once every file of the page has been emitted
+                        .repeatWhen(new Func1<Observable<? extends Void>, Observable<?>>() {
+                            @Override
+                            public Observable<?> call(Observable<? extends Void> completions) {
+                                return completions.takeWhile(new Func1<Void, Boolean>() {
+                                    @Override
+                                    public Boolean call(Void ignored) {
+                                        return pageToken[0] != null;
+                                    }
+                                });
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * Convert each file of the buffer as it is requested, releasing the buffer at the end
+     */
+    private static <T> Observable<T> each(final MetadataBuffer buffer, final ServiceMethod<T> serviceMethod,
+                                          final Call call) {
+        //release eagerly, on completion, so a page is gone before the next one is queried
+        return Observable.using(new Func0<MetadataBuffer>() {
+            @Override
+            public MetadataBuffer call() {
+                return buffer;
+            }
+        }, new Func1<MetadataBuffer, Observable<T>>() {
+            @Override
+            public Observable<T> call(final MetadataBuffer buffer) {
+                //range only emits as many indexes as were requested
+                return Observable.range(0, buffer.getCount())
+                        .concatMap(new Func1<Integer, Observable<T>>() {
+                            @Override
+                            public Observable<T> call(Integer index) {
+                                long start = System.nanoTime();
+                                try {
+                                    T response = serviceMethod.toResponse(buffer.get(index), call);
+                                    call.converted(start);
+                                    return Observable.just(response);
+                                } catch (IOException e) {
+                                    return Observable.error(e);
+                                }
+                            }
+                        });
+            }
+        }, new Action1<MetadataBuffer>() {
+            @Override
+            public void call(MetadataBuffer buffer) {
+                buffer.release();
+            }
+        }, true);
+    }
+
+    /**
+     * Same as {@link #create(Driver, Request, Deadline)}, but through a {@link Backend}. Emits the
+     * {@link Backend.Entry} of the file which was written.
+     */
+    public static Observable<Backend.Entry> create(final Backend backend, final Request request) {
+        return Observable.defer(new Func0<Observable<Backend.Entry>>() {
+            @Override
+            public Observable<Backend.Entry> call() {
+                try {
+                    String folderId = backend.resolveFolder(folderUri(request.uri, folderCount(request)), true);
+                    return Observable.just(backend.write(folderId, request.uri.getLastPathSegment(),
+                            request.mimeType, request.requestBody));
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #createBatch(Driver, Request, Deadline, int, RetryPolicy, int)}, but through a
+     * {@link Backend}. The folder is resolved once, and each body is retried on its own.
+     */
+    public static Observable<Backend.Entry> createBatch(final Backend backend, final Request request,
+                                                        final int maxConcurrent, final RetryPolicy retryPolicy,
+                                                        final int maxRetries) {
+        return Observable.defer(new Func0<Observable<Backend.Entry>>() {
+            @Override
+            public Observable<Backend.Entry> call() {
+                Driver.checkUniqueTitles(request.requestBodies);
+                final String folderId;
+                try {
+                    folderId = backend.resolveFolder(folderUri(request.uri, folderCount(request)), true);
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+                return Observable.from(request.requestBodies)
+                        .flatMap(new Func1<RequestBody, Observable<Backend.Entry>>() {
+                            @Override
+                            public Observable<Backend.Entry> call(final RequestBody body) {
+                                Observable<Backend.Entry> write = Observable.defer(new Func0<Observable<Backend.Entry>>() {
+                                    @Override
+                                    public Observable<Backend.Entry> call() {
+                                        String title = body.metadataChangeSet == null
+                                                ? null : body.metadataChangeSet.getTitle();
+                                        if (title == null) {
+                                            return Observable.error(new IOException(
+                                                    "Each body in a batch needs a title set on its MetadataChangeSet"));
+                                        }
+                                        try {
+                                            return Observable.just(backend.write(folderId, title, request.mimeType, body));
+                                        } catch (IOException e) {
+                                            return Observable.error(e);
+                                        }
+                                    }
+                                }).subscribeOn(Schedulers.io());
+                                return retryPolicy.apply(write, maxRetries);
+                            }
+                        }, maxConcurrent);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #read(Driver, Request, Deadline, ServiceMethod)}, but through a {@link Backend}.
+     * {@link com.commit451.zapdos.drive.Each} reads emit every file of the folder, other reads
+     * emit the file with the exact title, or null if there is none.
+     */
+    public static <T> Observable<T> read(final Backend backend, final Request request,
+                                         final ServiceMethod<T> serviceMethod) {
+        Observable<Backend.Entry> entries = Observable.defer(new Func0<Observable<Backend.Entry>>() {
+            @Override
+            public Observable<Backend.Entry> call() {
+                try {
+                    //reading never creates anything, a missing folder has no files
+                    String folderId = backend.resolveFolder(folderUri(request.uri, folderCount(request)), false);
+                    if (folderId == null) {
+                        return Observable.empty();
+                    }
+                    String title = request.each ? null : request.uri.getLastPathSegment();
+                    return Observable.from(backend.query(folderId, title, request.mimeType));
+                } catch (IOException e) {
+                    return Observable.error(e);
+                }
+            }
+        });
+        Observable<T> responses = entries.concatMap(new Func1<Backend.Entry, Observable<T>>() {
+            @Override
+            public Observable<T> call(Backend.Entry entry) {
+                try {
+                    return Observable.just(serviceMethod.toResponse(backend, entry));
                 } catch (IOException e) {
                     return Observable.error(e);
                 }
             }
         });
+        if (request.each) {
+            return responses;
+        }
+        //same as a read from Drive, which converts an empty buffer into null
+        return responses.take(1).defaultIfEmpty(null);
+    }
+
+    /**
+     * Get how many segments of the uri of the request are folders. Batches and reads of each
+     * file point at the folder itself, everything else points at a file within the folder.
+     */
+    private static int folderCount(Request request) {
+        int segments = request.uri.getPathSegments().size();
+        return request.isBatch() || request.each ? segments : segments - 1;
+    }
+
+    /**
+     * Get the uri of the folder made up of the first {@code folderCount} segments of the uri
+     */
+    private static Uri folderUri(Uri uri, int folderCount) {
+        Uri.Builder builder = new Uri.Builder()
+                .scheme(uri.getScheme())
+                .authority(uri.getAuthority());
+        List<String> segments = uri.getPathSegments();
+        for (int i = 0; i < folderCount; i++) {
+            builder.appendPath(segments.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * The files found by a read, along with the call which found them
+     */
+    private static class Listing {
+        @Nullable
+        final MetadataBuffer buffer;
+        final Call call;
+
+        Listing(@Nullable MetadataBuffer buffer, Call call) {
+            this.buffer = buffer;
+            this.call = call;
+        }
+    }
+
+    /**
+     * End the call once the observable terminates, or once it is unsubscribed from before then,
+     * such as by a take or a timeout downstream
+     */
+    private static <T> Observable<T> ending(Observable<T> observable, final Call call) {
+        return observable.doOnError(new Action1<Throwable>() {
+            @Override
+            public void call(Throwable e) {
+                call.end(e);
+            }
+        }).doOnCompleted(new Action0() {
+            @Override
+            public void call() {
+                call.end(null);
+            }
+        }).doOnUnsubscribe(new Action0() {
+            @Override
+            public void call() {
+                //does nothing if the call already terminated
+                call.end(new IOException("Canceled"));
+            }
+        });
     }
 
-    private static <T> T blah(final Driver driver, ServiceMethod<T> serviceMethod, final Request request) throws IOException {
-        MetadataBuffer buffer = driver.read(request);
+    private static <T> T blah(final Driver driver, ServiceMethod<T> serviceMethod, final Request request,
+                              Call call) throws IOException {
+        MetadataBuffer buffer = driver.read(request, call);
         if (buffer == null) {
             throw new IOException("Buffer was null");
         }
-        T response = serviceMethod.toResponse(buffer);
-        buffer.release();
-        return response;
+        try {
+            long start = System.nanoTime();
+            T response = serviceMethod.toResponse(buffer, call);
+            call.converted(start);
+            return response;
+        } finally {
+            buffer.release();
+        }
     }
 }
@@ -15,8 +15,13 @@
  */
 package com.commit451.zapdos;
 
+import com.google.android.gms.drive.metadata.CustomPropertyKey;
+import com.google.android.gms.drive.query.Filters;
+import com.google.android.gms.drive.query.SearchableField;
+
 import java.io.IOException;
 import java.lang.reflect.Array;
+import java.util.Date;
 
 import static com.commit451.zapdos.Utils.checkNotNull;
 
@@ -60,11 +65,13 @@ abstract class ParameterHandler<T> {
 
     static final class Path<T> extends ParameterHandler<T> {
         private final String name;
+        private final int index;
         private final Converter<T, String> valueConverter;
         private final boolean encoded;
 
-        Path(String name, Converter<T, String> valueConverter, boolean encoded) {
+        Path(String name, int index, Converter<T, String> valueConverter, boolean encoded) {
             this.name = checkNotNull(name, "name == null");
+            this.index = index;
             this.valueConverter = valueConverter;
             this.encoded = encoded;
         }
@@ -75,7 +82,54 @@ abstract class ParameterHandler<T> {
                 throw new IllegalArgumentException(
                         "Path parameter \"" + name + "\" value must not be null.");
             }
-            builder.addPathParam(name, valueConverter.convert(value), encoded);
+            builder.addPathParam(index, valueConverter.convert(value), encoded);
+        }
+    }
+
+    static final class Title<T> extends ParameterHandler<T> {
+        private final Converter<T, String> valueConverter;
+
+        Title(Converter<T, String> valueConverter) {
+            this.valueConverter = valueConverter;
+        }
+
+        @Override
+        void apply(RequestBuilder builder, T value) throws IOException {
+            if (value == null) return; // Skip null values.
+            builder.addFilter(Filters.eq(SearchableField.TITLE, valueConverter.convert(value)));
+        }
+    }
+
+    static final class ModifiedAfter extends ParameterHandler<Object> {
+        @Override
+        void apply(RequestBuilder builder, Object value) {
+            if (value == null) return; // Skip null values.
+            Date date = value instanceof Date ? (Date) value : new Date((Long) value);
+            builder.addFilter(Filters.greaterThan(SearchableField.MODIFIED_DATE, date));
+        }
+    }
+
+    static final class Starred extends ParameterHandler<Boolean> {
+        @Override
+        void apply(RequestBuilder builder, Boolean value) {
+            if (value == null) return; // Skip null values.
+            builder.addFilter(Filters.eq(SearchableField.STARRED, value));
+        }
+    }
+
+    static final class Property<T> extends ParameterHandler<T> {
+        private final CustomPropertyKey key;
+        private final Converter<T, String> valueConverter;
+
+        Property(CustomPropertyKey key, Converter<T, String> valueConverter) {
+            this.key = checkNotNull(key, "key == null");
+            this.valueConverter = valueConverter;
+        }
+
+        @Override
+        void apply(RequestBuilder builder, T value) throws IOException {
+            if (value == null) return; // Skip null values.
+            builder.addFilter(Filters.eq(key, valueConverter.convert(value)));
         }
     }
 
@@ -97,7 +151,7 @@ abstract class ParameterHandler<T> {
             } catch (IOException e) {
                 throw new RuntimeException("Unable to convert " + value + " to RequestBody", e);
             }
-            builder.setBody(body);
+            builder.addBody(body);
         }
     }
 }
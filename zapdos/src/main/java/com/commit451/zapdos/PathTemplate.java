@@ -0,0 +1,112 @@
+package com.commit451.zapdos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * A relative url such as {@code users/{user}/notes/{name}}, split up once into its literal parts
+ * and the slots for its path params, so that filling it in is a single pass over the parts
+ */
+final class PathTemplate {
+
+    /**
+     * The literal text around the slots. There is always one more literal than there are slots.
+     */
+    private final String[] literals;
+    /**
+     * For each slot, the index of the param that fills it
+     */
+    private final int[] slots;
+    /**
+     * The unique param names, indexed the same way as the values passed to {@link #expand(String[])}
+     */
+    private final String[] names;
+    private final int literalLength;
+
+    private PathTemplate(String[] literals, int[] slots, String[] names) {
+        this.literals = literals;
+        this.slots = slots;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static PathTemplate parse(String relativeUrl) {
+        Matcher m = ServiceMethod.PARAM_URL_REGEX.matcher(relativeUrl);
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int last = 0;
+        while (m.find()) {
+            literals.add(relativeUrl.substring(last, m.start()));
+            String name = m.group(1);
+            int index = names.indexOf(name);
+            if (index == -1) {
+                index = names.size();
+                names.add(name);
+            }
+            slots.add(index);
+            last = m.end();
+        }
+        literals.add(relativeUrl.substring(last));
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new PathTemplate(literals.toArray(new String[literals.size()]), slotArray,
+                names.toArray(new String[names.size()]));
+    }
+
+    /**
+     * The number of unique path params
+     */
+    int paramCount() {
+        return names.length;
+    }
+
+    /**
+     * Get the index of the named param, or -1 if it does not appear in the template
+     */
+    int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fill in the template. A param without a value is left as its {@code {name}} placeholder.
+     *
+     * @param values the already encoded values, indexed by {@link #indexOf(String)}
+     */
+    String expand(String[] values) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (String value : values) {
+            if (value != null) {
+                length += value.length();
+            }
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            String value = values[slots[i]];
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(names[slots[i]]).append('}');
+            }
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+}
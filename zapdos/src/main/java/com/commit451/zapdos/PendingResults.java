@@ -0,0 +1,100 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.common.api.PendingResult;
+import com.google.android.gms.common.api.Releasable;
+import com.google.android.gms.common.api.Result;
+import com.google.android.gms.common.api.ResultCallback;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Turns {@link PendingResult}s into {@link Observable}s by way of
+ * {@link PendingResult#setResultCallback(ResultCallback)}, so that no thread waits on them
+ */
+final class PendingResults {
+
+    private PendingResults() {
+        // No instances.
+    }
+
+    /**
+     * Emit the successful result of the call, or an {@link IOException} if it failed. The call is
+     * made once per subscription, and results are delivered on the looper of the
+     * {@link com.google.android.gms.common.api.GoogleApiClient}, so keep work done downstream light.
+     *
+     * @param call      makes the call, since a pending result only takes a single callback
+     * @param operation what the call does, for the error message, such as "query folder"
+     * @param zapdosCall  the call this is a round trip of, which holds when to give up on it
+     * @param rateLimiter delays the call until it is allowed, and hears how it went
+     */
+    static <R extends Result> Observable<R> toObservable(final Func0<PendingResult<R>> call, final String operation,
+                                                         final Call zapdosCall, final RateLimiter rateLimiter) {
+        final Deadline deadline = zapdosCall.deadline;
+        final Observable<R> observable = Observable.create(new Observable.OnSubscribe<R>() {
+            @Override
+            public void call(final Subscriber<? super R> subscriber) {
+                final long start = System.nanoTime();
+                final PendingResult<R> pendingResult = call.call();
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        pendingResult.cancel();
+                    }
+                }));
+                ResultCallback<R> callback = new ResultCallback<R>() {
+                    @Override
+                    public void onResult(@NonNull R result) {
+                        if (subscriber.isUnsubscribed()) {
+                            //nobody will release it downstream
+                            if (result instanceof Releasable) {
+                                ((Releasable) result).release();
+                            }
+                            return;
+                        }
+                        rateLimiter.onResult(result.getStatus());
+                        zapdosCall.roundTrip(operation, result.getStatus(), start);
+                        try {
+                            Deadline.check(result.getStatus(), operation);
+                        } catch (IOException e) {
+                            subscriber.onError(e);
+                            return;
+                        }
+                        subscriber.onNext(result);
+                        subscriber.onCompleted();
+                    }
+                };
+                try {
+                    deadline.setResultCallback(pendingResult, callback, operation);
+                } catch (IOException e) {
+                    subscriber.onError(e);
+                }
+            }
+        });
+        return Observable.defer(new Func0<Observable<R>>() {
+            @Override
+            public Observable<R> call() {
+                long delay;
+                try {
+                    delay = rateLimiter.reserve(deadline, operation);
+                } catch (InterruptedIOException e) {
+                    return Observable.error(e);
+                }
+                if (delay == 0) {
+                    return observable;
+                }
+                //wait on a timer rather than on a thread
+                return observable.delaySubscription(delay, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.drive.DriveStatusCodes;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket which spaces out calls to Drive. The rate adapts to how Drive responds: it is
+ * halved whenever Drive reports that its rate limit was exceeded, and climbs back towards the max
+ * with every call which succeeds. Calls beyond the rate wait for their turn instead of being made.
+ */
+class RateLimiter {
+
+    /**
+     * Lets every call through right away
+     */
+    static final RateLimiter UNLIMITED = new RateLimiter(Double.POSITIVE_INFINITY);
+
+    //never back off to less than one call every five seconds
+    private static final double MIN_RATE = 0.2;
+    //each success raises the rate by this fraction of the max
+    private static final double INCREASE = 0.01;
+    //throttled responses to calls made before the last decrease should not decrease it again
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double mMaxRate;
+    //guarded by this
+    private double mRate;
+    private double mStoredPermits;
+    private long mNextFreeNanos;
+    private long mLastDecreaseNanos;
+
+    /**
+     * @param maxRate the most calls to make per second. Up to a second's worth of calls may be made
+     *                at once after a quiet period.
+     */
+    RateLimiter(double maxRate) {
+        mMaxRate = maxRate;
+        mRate = maxRate;
+        mStoredPermits = maxBurst();
+        mNextFreeNanos = System.nanoTime();
+        mLastDecreaseNanos = mNextFreeNanos - DECREASE_INTERVAL_NANOS;
+    }
+
+    /**
+     * Take a permit to make a call, waiting for one if needed
+     *
+     * @throws InterruptedIOException if the permit would not come before the deadline
+     */
+    void acquire(Deadline deadline, String operation) throws InterruptedIOException {
+        long delay = reserve(deadline, operation);
+        if (delay == 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit to " + operation);
+        }
+    }
+
+    /**
+     * Take a permit to make a call, unless it would not come before the deadline
+     *
+     * @return how long to wait before making the call, in nanoseconds
+     * @throws InterruptedIOException if the permit would not come before the deadline, in which
+     *                                case none is taken, so calls which give up do not hold back the rest
+     */
+    long reserve(Deadline deadline, String operation) throws InterruptedIOException {
+        long timeout = deadline.hasDeadline() ? deadline.remainingNanos(operation) : Long.MAX_VALUE;
+        long delay = reserve(timeout);
+        if (delay < 0) {
+            throw new InterruptedIOException("Timed out waiting for the rate limit to " + operation);
+        }
+        return delay;
+    }
+
+    /**
+     * Take a permit to make a call, unless it would take too long to come
+     *
+     * @param timeoutNanos the longest the call can wait for the permit
+     * @return how long to wait before making the call, in nanoseconds, or -1 without taking a
+     * permit if that would be the timeout or longer
+     */
+    synchronized long reserve(long timeoutNanos) {
+        if (mMaxRate == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long interval = intervalNanos();
+        if (now > mNextFreeNanos) {
+            mStoredPermits = Math.min(maxBurst(), mStoredPermits + (now - mNextFreeNanos) / (double) interval);
+            mNextFreeNanos = now;
+        }
+        long delay = mNextFreeNanos - now;
+        if (delay > 0 && delay >= timeoutNanos) {
+            return -1;
+        }
+        if (mStoredPermits >= 1) {
+            mStoredPermits -= 1;
+        } else {
+            //queue behind everyone who is already waiting
+            mNextFreeNanos += interval;
+        }
+        return delay;
+    }
+
+    /**
+     * Adapt the rate to how Drive responded to a call
+     */
+    synchronized void onResult(Status status) {
+        if (mMaxRate == Double.POSITIVE_INFINITY) {
+            return;
+        }
+        if (status.getStatusCode() == DriveStatusCodes.DRIVE_RATE_LIMIT_EXCEEDED) {
+            long now = System.nanoTime();
+            if (now - mLastDecreaseNanos >= DECREASE_INTERVAL_NANOS) {
+                mRate = Math.max(Math.min(MIN_RATE, mMaxRate), mRate / 2);
+                //no bursting until Drive has calmed down
+                mStoredPermits = 0;
+                mLastDecreaseNanos = now;
+            }
+        } else if (status.isSuccess()) {
+            mRate = Math.min(mMaxRate, mRate + mMaxRate * INCREASE);
+        }
+    }
+
+    private long intervalNanos() {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / mRate);
+    }
+
+    private double maxBurst() {
+        return Math.max(1, mMaxRate);
+    }
+}
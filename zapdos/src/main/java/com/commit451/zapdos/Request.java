@@ -3,6 +3,11 @@ package com.commit451.zapdos;
 import android.net.Uri;
 import android.support.annotation.Nullable;
 
+import com.google.android.gms.drive.query.Filter;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
 /**
  * Google Drive request
  */
@@ -13,14 +18,53 @@ public class Request {
 
     Uri uri;
     RequestBody requestBody;
+    //set instead of requestBody when writing many files at once
+    List<RequestBody> requestBodies;
     //TODO make this dynamic
     String mimeType = "text/plain";
     //CREATE, update, delete, etc
     String method;
+    //how long the whole operation may take, 0 for no limit
+    long timeoutMillis;
+    //READ every file within the folder at the uri, rather than the first match
+    boolean each;
+    //narrows down the files a READ returns, null if there are none
+    @Nullable
+    List<Filter> filters;
+    //how many times to retry transient failures
+    int maxRetries;
+    //the service method which made the request, reported to the EventListener
+    @Nullable
+    Method javaMethod;
 
     public Request(Uri uri, String method, @Nullable RequestBody requestBody) {
         this.uri = uri;
         this.requestBody = requestBody;
         this.method = method;
     }
+
+    Request(Uri uri, String method, List<RequestBody> requestBodies) {
+        this.uri = uri;
+        this.requestBodies = requestBodies;
+        this.method = method;
+    }
+
+    boolean isBatch() {
+        return requestBodies != null;
+    }
+
+    /**
+     * Whether the bodies can be written again, so that a failed write can be retried
+     */
+    boolean isRepeatable() {
+        if (requestBodies != null) {
+            for (RequestBody body : requestBodies) {
+                if (body.isOneShot()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return requestBody == null || !requestBody.isOneShot();
+    }
 }
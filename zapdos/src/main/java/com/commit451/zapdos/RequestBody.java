@@ -1,12 +1,26 @@
 package com.commit451.zapdos;
 
+import android.support.annotation.Nullable;
+
 import com.google.android.gms.drive.MetadataChangeSet;
 
+import java.io.IOException;
+
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Source;
+
 /**
- * The things you need to fill drive contents and create a file
+ * The things you need to fill drive contents and create a file. To stream the contents straight
+ * into Drive without holding them in memory first, subclass this and override
+ * {@link #writeTo(BufferedSink)}, or use {@link #create(MetadataChangeSet, Source)}.
  */
 public class RequestBody {
 
+    /**
+     * The contents of the file, or null if the body streams them in {@link #writeTo(BufferedSink)} instead
+     */
+    @Nullable
     public byte[] bytes;
     public MetadataChangeSet metadataChangeSet;
 
@@ -14,8 +28,75 @@ public class RequestBody {
         return new RequestBody(metadataChangeSet, bytes);
     }
 
+    /**
+     * Create a body which copies the source into Drive as it is written. The source is closed once
+     * it has been written, so the body can only be written once.
+     */
+    public static RequestBody create(MetadataChangeSet metadataChangeSet, Source source) {
+        return new SourceRequestBody(metadataChangeSet, source);
+    }
+
     private RequestBody(MetadataChangeSet metadataChangeSet, byte[] bytes) {
         this.bytes = bytes;
         this.metadataChangeSet = metadataChangeSet;
     }
+
+    /**
+     * For bodies which stream their contents, which must override {@link #writeTo(BufferedSink)}
+     */
+    protected RequestBody(MetadataChangeSet metadataChangeSet) {
+        this.metadataChangeSet = metadataChangeSet;
+    }
+
+    /**
+     * Write the contents of this body to the sink, which is backed by the drive contents. By
+     * default, writes the {@link #bytes}.
+     */
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (bytes == null) {
+            throw new IllegalStateException("Bodies without bytes must override writeTo");
+        }
+        sink.write(bytes);
+    }
+
+    /**
+     * A digest of the contents, if they can be known without writing them, used to skip writes
+     * which would not change anything
+     */
+    @Nullable
+    ByteString contentHash() {
+        //the bytes are public, so they are hashed fresh each time rather than remembered
+        return bytes == null ? null : ByteString.of(bytes).md5();
+    }
+
+    /**
+     * Whether the body can only be written once, in which case a failed write cannot be retried
+     */
+    boolean isOneShot() {
+        return false;
+    }
+
+    private static class SourceRequestBody extends RequestBody {
+
+        private final Source mSource;
+
+        SourceRequestBody(MetadataChangeSet metadataChangeSet, Source source) {
+            super(metadataChangeSet);
+            mSource = source;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try {
+                sink.writeAll(mSource);
+            } finally {
+                mSource.close();
+            }
+        }
+
+        @Override
+        boolean isOneShot() {
+            return true;
+        }
+    }
 }
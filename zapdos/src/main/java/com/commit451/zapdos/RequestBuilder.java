@@ -19,6 +19,10 @@ import android.net.Uri;
 
 import com.google.android.gms.common.api.Scope;
 import com.google.android.gms.drive.Drive;
+import com.google.android.gms.drive.query.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import okio.Buffer;
 
@@ -30,14 +34,20 @@ final class RequestBuilder {
     private final String method;
 
     private final Scope baseScope;
+    private final PathTemplate pathTemplate;
+    private final String[] pathValues;
     private String relativeUrl;
 
     private RequestBody body;
+    private final List<RequestBody> bodies;
+    private List<Filter> filters;
 
-    RequestBuilder(String method, Scope baseScope, String relativeUrl) {
+    RequestBuilder(String method, Scope baseScope, PathTemplate pathTemplate, boolean batch) {
         this.method = method;
         this.baseScope = baseScope;
-        this.relativeUrl = relativeUrl;
+        this.pathTemplate = pathTemplate;
+        this.pathValues = pathTemplate != null ? new String[pathTemplate.paramCount()] : null;
+        this.bodies = batch ? new ArrayList<RequestBody>() : null;
     }
 
     void setRelativeUrl(Object relativeUrl) {
@@ -45,12 +55,15 @@ final class RequestBuilder {
         this.relativeUrl = relativeUrl.toString();
     }
 
-    void addPathParam(String name, String value, boolean encoded) {
-        if (relativeUrl == null) {
-            // The relative URL is cleared when the first query parameter is set.
+    /**
+     * Fill in a path param
+     * @param index the index of the param within the {@link PathTemplate}
+     */
+    void addPathParam(int index, String value, boolean encoded) {
+        if (pathTemplate == null) {
             throw new AssertionError();
         }
-        relativeUrl = relativeUrl.replace("{" + name + "}", canonicalizeForPath(value, encoded));
+        pathValues[index] = canonicalizeForPath(value, encoded);
     }
 
     private static String canonicalizeForPath(String input, boolean alreadyEncoded) {
@@ -102,8 +115,22 @@ final class RequestBuilder {
         }
     }
 
-    void setBody(RequestBody body) {
-        this.body = body;
+    void addBody(RequestBody body) {
+        if (bodies != null) {
+            bodies.add(body);
+        } else {
+            this.body = body;
+        }
+    }
+
+    /**
+     * Narrow down the files a read returns
+     */
+    void addFilter(Filter filter) {
+        if (filters == null) {
+            filters = new ArrayList<>();
+        }
+        filters.add(filter);
     }
 
     Request build() {
@@ -113,10 +140,20 @@ final class RequestBuilder {
         } else if (baseScope == Drive.SCOPE_FILE) {
             uriBuilder.authority(Request.SCHEME_FILE);
         }
-        uriBuilder.appendPath(relativeUrl);
-
-        RequestBody body = this.body;
-
-        return new Request(uriBuilder.build(), method, body);
+        String relativeUrl = this.relativeUrl;
+        if (relativeUrl == null) {
+            relativeUrl = pathTemplate.expand(pathValues);
+        }
+        //path params are already encoded, and the slashes separate the folders
+        uriBuilder.appendEncodedPath(relativeUrl);
+
+        Request request;
+        if (bodies != null) {
+            request = new Request(uriBuilder.build(), method, bodies);
+        } else {
+            request = new Request(uriBuilder.build(), method, body);
+        }
+        request.filters = filters;
+        return request;
     }
 }
@@ -0,0 +1,128 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.drive.DriveStatusCodes;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * Decides which failures are worth retrying and how long to back off before each retry. Backoff
+ * grows exponentially with each retry and is fully jittered, meaning the actual wait is picked at
+ * random up to the backoff, so that clients which failed together do not retry together.
+ * <p>
+ * Reads are always retried. Writes are retried only if their body can be written again, which is
+ * every body except one created from a {@link okio.Source}. Each retry looks the file up by its
+ * title again, so a write which went through before failing is overwritten rather than
+ * duplicated. Timeouts are never retried.
+ */
+public class RetryPolicy {
+
+    /**
+     * Never retry
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+
+    /**
+     * Retry up to 3 times, backing off from half a second up to 30 seconds
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, TimeUnit.SECONDS.toMillis(30));
+
+    private static final Random RANDOM = new Random();
+
+    /**
+     * @param maxRetries     the max retries, not counting the first attempt
+     * @param initialBackoff the most to wait before the first retry, doubled for every retry after it
+     * @param maxBackoff     the most to ever wait before a retry
+     * @param unit           the unit of the backoffs
+     */
+    public static RetryPolicy create(int maxRetries, long initialBackoff, long maxBackoff, TimeUnit unit) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative");
+        }
+        if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("Backoff must not be negative, and the max must be at least the initial");
+        }
+        return new RetryPolicy(maxRetries, unit.toMillis(initialBackoff), unit.toMillis(maxBackoff));
+    }
+
+    private final int mMaxRetries;
+    private final long mInitialBackoffMillis;
+    private final long mMaxBackoffMillis;
+
+    protected RetryPolicy(int maxRetries, long initialBackoffMillis, long maxBackoffMillis) {
+        mMaxRetries = maxRetries;
+        mInitialBackoffMillis = initialBackoffMillis;
+        mMaxBackoffMillis = maxBackoffMillis;
+    }
+
+    public int getMaxRetries() {
+        return mMaxRetries;
+    }
+
+    /**
+     * Whether the failure is transient, so that trying again might succeed. By default, that is
+     * network and internal errors, as well as exceeding the rate limit of Drive. Override to
+     * classify failures differently.
+     */
+    public boolean isRetryable(Throwable e) {
+        if (!(e instanceof DriveStatusException)) {
+            return false;
+        }
+        switch (((DriveStatusException) e).getStatusCode()) {
+            case CommonStatusCodes.NETWORK_ERROR:
+            case CommonStatusCodes.INTERNAL_ERROR:
+            case DriveStatusCodes.DRIVE_RATE_LIMIT_EXCEEDED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Get how long to wait before the retry, picked at random up to the backoff for that retry
+     *
+     * @param retry the retry which is about to be made, starting at 0
+     */
+    long backoffMillis(int retry) {
+        //cap the shift so that the backoff cannot overflow
+        long backoff = Math.min(mMaxBackoffMillis, mInitialBackoffMillis << Math.min(retry, 30));
+        if (backoff <= 0) {
+            return 0;
+        }
+        synchronized (RANDOM) {
+            return (long) (RANDOM.nextDouble() * backoff);
+        }
+    }
+
+    /**
+     * Resubscribe to the observable when it fails with a retryable failure, backing off in between
+     *
+     * @param maxRetries the max retries, which may differ from {@link #getMaxRetries()} per method
+     */
+    <T> Observable<T> apply(Observable<T> observable, final int maxRetries) {
+        if (maxRetries <= 0) {
+            return observable;
+        }
+        return observable.retryWhen(new Func1<Observable<? extends Throwable>, Observable<?>>() {
+            @Override
+            public Observable<?> call(Observable<? extends Throwable> errors) {
+                return errors.flatMap(new Func1<Throwable, Observable<?>>() {
+                    //errors arrive one at a time, once per subscription
+                    private int mRetries;
+
+                    @Override
+                    public Observable<?> call(Throwable e) {
+                        if (mRetries >= maxRetries || !isRetryable(e)) {
+                            return Observable.error(e);
+                        }
+                        return Observable.timer(backoffMillis(mRetries++), TimeUnit.MILLISECONDS);
+                    }
+                });
+            }
+        });
+    }
+}
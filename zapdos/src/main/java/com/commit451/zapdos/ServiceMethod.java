@@ -18,16 +18,27 @@ package com.commit451.zapdos;
 import com.commit451.zapdos.drive.Body;
 import com.commit451.zapdos.drive.CREATE;
 import com.commit451.zapdos.drive.DELETE;
+import com.commit451.zapdos.drive.Each;
+import com.commit451.zapdos.drive.ModifiedAfter;
 import com.commit451.zapdos.drive.Path;
+import com.commit451.zapdos.drive.Property;
 import com.commit451.zapdos.drive.READ;
+import com.commit451.zapdos.drive.Retry;
+import com.commit451.zapdos.drive.Starred;
+import com.commit451.zapdos.drive.Timeout;
+import com.commit451.zapdos.drive.Title;
 import com.commit451.zapdos.drive.UPDATE;
 import com.google.android.gms.common.api.Scope;
+import com.google.android.gms.drive.Metadata;
 import com.google.android.gms.drive.MetadataBuffer;
+import com.google.android.gms.drive.metadata.CustomPropertyKey;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -45,16 +56,26 @@ final class ServiceMethod<T> {
     private final Scope baseScope;
     private final Converter<MetadataBuffer, T> responseConverter;
     private final String httpMethod;
-    private final String relativeUrl;
+    private final PathTemplate pathTemplate;
     private final boolean hasBody;
+    private final boolean isBatch;
+    private final boolean each;
+    private final long timeoutMillis;
+    private final int maxRetries;
+    private final Method method;
     private final ParameterHandler<?>[] parameterHandlers;
 
     ServiceMethod(Builder<T> builder) {
         this.baseScope = builder.zapdos.scope;
         this.responseConverter = builder.responseConverter;
         this.httpMethod = builder.httpMethod;
-        this.relativeUrl = builder.relativeUrl;
+        this.pathTemplate = builder.pathTemplate;
         this.hasBody = builder.hasBody;
+        this.isBatch = builder.isBatch;
+        this.each = builder.each;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.maxRetries = builder.maxRetries;
+        this.method = builder.method;
         this.parameterHandlers = builder.parameterHandlers;
     }
 
@@ -62,7 +83,7 @@ final class ServiceMethod<T> {
      * Builds an HTTP request from method arguments.
      */
     Request toRequest(Object... args) throws IOException {
-        RequestBuilder requestBuilder = new RequestBuilder(httpMethod, baseScope, relativeUrl);
+        RequestBuilder requestBuilder = new RequestBuilder(httpMethod, baseScope, pathTemplate, isBatch);
 
         @SuppressWarnings("unchecked") // It is an error to invoke a method with the wrong arg types.
                 ParameterHandler<Object>[] handlers = (ParameterHandler<Object>[]) parameterHandlers;
@@ -77,16 +98,49 @@ final class ServiceMethod<T> {
             handlers[p].apply(requestBuilder, args[p]);
         }
 
-        return requestBuilder.build();
+        Request request = requestBuilder.build();
+        request.timeoutMillis = timeoutMillis;
+        request.maxRetries = maxRetries;
+        request.javaMethod = method;
+        request.each = each;
+        return request;
     }
 
     /**
      * Builds a method return value from an HTTP response body.
      */
-    T toResponse(MetadataBuffer body) throws IOException {
+    T toResponse(MetadataBuffer body, Call call) throws IOException {
+        if (responseConverter instanceof SourceConverter) {
+            //opens the contents of the file under the deadline of the call
+            //noinspection unchecked
+            return ((SourceConverter<T>) responseConverter).convert(body, call);
+        }
         return responseConverter.convert(body);
     }
 
+    /**
+     * Builds a method return value from a single file of the response, for {@link Each} methods
+     */
+    T toResponse(Metadata metadata, Call call) throws IOException {
+        if (responseConverter instanceof SourceConverter) {
+            //noinspection unchecked
+            return ((SourceConverter<T>) responseConverter).convert(metadata, call);
+        }
+        //checked when the method was built
+        //noinspection unchecked
+        return ((ItemConverter<T>) responseConverter).convert(metadata);
+    }
+
+    /**
+     * Builds a method return value from a file found by the {@link Backend} set on the
+     * {@link Zapdos} instance
+     */
+    T toResponse(Backend backend, Backend.Entry entry) throws IOException {
+        //checked when the method was built
+        //noinspection unchecked
+        return ((BackendConverter<T>) responseConverter).convert(backend, entry);
+    }
+
     public boolean hasBody() {
         return hasBody;
     }
@@ -112,10 +166,15 @@ final class ServiceMethod<T> {
         boolean gotUrl;
         String httpMethod;
         boolean hasBody;
+        boolean isBatch;
+        boolean each;
+        long timeoutMillis;
+        int maxRetries;
         boolean isFormEncoded;
         boolean isMultipart;
         String relativeUrl;
         Set<String> relativeUrlParamNames;
+        PathTemplate pathTemplate;
         ParameterHandler<?>[] parameterHandlers;
         Converter<MetadataBuffer, T> responseConverter;
 
@@ -132,6 +191,8 @@ final class ServiceMethod<T> {
             responseType = Utils.getTypeFromMethod(method);
             responseConverter = createResponseConverter();
 
+            timeoutMillis = zapdos.timeoutMillis;
+            maxRetries = zapdos.retryPolicy == null ? 0 : zapdos.retryPolicy.getMaxRetries();
             for (Annotation annotation : methodAnnotations) {
                 parseMethodAnnotation(annotation);
             }
@@ -171,6 +232,18 @@ final class ServiceMethod<T> {
             if (relativeUrl == null && !gotUrl) {
                 throw methodError("Missing either @%s URL or @Url parameter.", httpMethod);
             }
+            if (each && !"READ".equals(httpMethod)) {
+                throw methodError("@Each can only be used with @READ.");
+            }
+            if (each && !(responseConverter instanceof ItemConverter)) {
+                throw methodError("@Each requires a converter which converts a single file, such as "
+                        + "SourceConverter. Found: %s", responseConverter.getClass().getName());
+            }
+            if (zapdos.backend != null && "READ".equals(httpMethod)
+                    && !(responseConverter instanceof BackendConverter)) {
+                throw methodError("Reading through a Backend requires a BackendConverter, such as "
+                        + "SourceConverter. Found: %s", responseConverter.getClass().getName());
+            }
             if (!isFormEncoded && !isMultipart && !hasBody && gotBody) {
                 throw methodError("Non-body HTTP method cannot contain @Body.");
             }
@@ -193,6 +266,21 @@ final class ServiceMethod<T> {
                 parseHttpMethodAndPath("UPDATE", ((UPDATE) annotation).value(), true);
             } else if (annotation instanceof DELETE) {
                 parseHttpMethodAndPath("DELETE", ((DELETE) annotation).value(), true);
+            } else if (annotation instanceof Timeout) {
+                Timeout timeout = (Timeout) annotation;
+                if (timeout.value() <= 0) {
+                    throw methodError("@Timeout must be greater than 0.");
+                }
+                //anything under a millisecond still counts as a timeout
+                timeoutMillis = Math.max(1, timeout.unit().toMillis(timeout.value()));
+            } else if (annotation instanceof Each) {
+                each = true;
+            } else if (annotation instanceof Retry) {
+                int retries = ((Retry) annotation).value();
+                if (retries < 0) {
+                    throw methodError("@Retry must not be negative.");
+                }
+                maxRetries = retries;
             }
         }
 
@@ -222,6 +310,7 @@ final class ServiceMethod<T> {
 
             this.relativeUrl = value;
             this.relativeUrlParamNames = parsePathParameters(value);
+            this.pathTemplate = PathTemplate.parse(value);
         }
 
         private ParameterHandler<?> parseParameter(
@@ -268,7 +357,8 @@ final class ServiceMethod<T> {
                 validatePathName(p, name);
 
                 Converter<?, String> converter = ToStringConverter.INSTANCE;
-                return new ParameterHandler.Path<>(name, converter, path.encoded());
+                return new ParameterHandler.Path<>(name, pathTemplate.indexOf(name), converter,
+                        path.encoded());
 
             } else if (annotation instanceof Body) {
                 if (isFormEncoded || isMultipart) {
@@ -279,20 +369,91 @@ final class ServiceMethod<T> {
                     throw parameterError(p, "Multiple @Body method annotations found.");
                 }
 
+                Class<?> rawParameterType = Utils.getRawType(type);
+                boolean batch = Iterable.class.isAssignableFrom(rawParameterType)
+                        || rawParameterType.isArray();
+                if (batch && !"CREATE".equals(httpMethod)) {
+                    throw parameterError(p, "Only @CREATE methods may take multiple @Body values.");
+                }
+
+                Type bodyType = type;
+                if (Iterable.class.isAssignableFrom(rawParameterType)) {
+                    if (!(type instanceof ParameterizedType)) {
+                        throw parameterError(p, rawParameterType.getSimpleName()
+                                + " must include generic type (e.g., "
+                                + rawParameterType.getSimpleName()
+                                + "<String>)");
+                    }
+                    bodyType = Utils.getParameterUpperBound(0, (ParameterizedType) type);
+                } else if (rawParameterType.isArray()) {
+                    bodyType = boxIfPrimitive(rawParameterType.getComponentType());
+                }
+
                 Converter<?, RequestBody> converter;
                 try {
-                    converter = zapdos.requestBodyConverter(type, annotations, methodAnnotations);
+                    converter = zapdos.requestBodyConverter(bodyType, annotations, methodAnnotations);
                 } catch (RuntimeException e) {
                     // Wide exception range because factories are user code.
-                    throw parameterError(e, p, "Unable to create @Body converter for %s", type);
+                    throw parameterError(e, p, "Unable to create @Body converter for %s", bodyType);
                 }
                 gotBody = true;
+                if (Iterable.class.isAssignableFrom(rawParameterType)) {
+                    isBatch = true;
+                    return new ParameterHandler.Body<>(converter).iterable();
+                } else if (rawParameterType.isArray()) {
+                    isBatch = true;
+                    return new ParameterHandler.Body<>(converter).array();
+                }
                 return new ParameterHandler.Body<>(converter);
+
+            } else if (annotation instanceof Title) {
+                validateFilter(p, "@Title");
+                Converter<?, String> converter = ToStringConverter.INSTANCE;
+                return new ParameterHandler.Title<>(converter);
+
+            } else if (annotation instanceof ModifiedAfter) {
+                validateFilter(p, "@ModifiedAfter");
+                Class<?> rawParameterType = boxIfPrimitive(Utils.getRawType(type));
+                if (!Date.class.isAssignableFrom(rawParameterType) && rawParameterType != Long.class) {
+                    throw parameterError(p, "@ModifiedAfter must be a Date or a long. Found: %s",
+                            rawParameterType.getSimpleName());
+                }
+                return new ParameterHandler.ModifiedAfter();
+
+            } else if (annotation instanceof Starred) {
+                validateFilter(p, "@Starred");
+                if (boxIfPrimitive(Utils.getRawType(type)) != Boolean.class) {
+                    throw parameterError(p, "@Starred must be a boolean. Found: %s",
+                            Utils.getRawType(type).getSimpleName());
+                }
+                return new ParameterHandler.Starred();
+
+            } else if (annotation instanceof Property) {
+                validateFilter(p, "@Property");
+                Property property = (Property) annotation;
+                CustomPropertyKey key;
+                try {
+                    key = new CustomPropertyKey(property.value(),
+                            property.isPublic() ? CustomPropertyKey.PUBLIC : CustomPropertyKey.PRIVATE);
+                } catch (IllegalArgumentException e) {
+                    throw parameterError(e, p, "Invalid @Property key \"%s\"", property.value());
+                }
+                Converter<?, String> converter = ToStringConverter.INSTANCE;
+                return new ParameterHandler.Property<>(key, converter);
             }
 
             return null; // Not a Retrofit annotation.
         }
 
+        private void validateFilter(int p, String annotation) {
+            if (!"READ".equals(httpMethod)) {
+                throw parameterError(p, "%s can only be used with @READ.", annotation);
+            }
+            if (zapdos.backend != null) {
+                throw parameterError(p, "%s can only be used against Google Drive, not a Backend.", annotation);
+            }
+        }
+
         private void validatePathName(int p, String name) {
             if (!PARAM_NAME_REGEX.matcher(name).matches()) {
                 throw parameterError(p, "@Path parameter name must match %s. Found: %s",
@@ -0,0 +1,63 @@
+package com.commit451.zapdos;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes sure that only one call for a given key is in flight at a time. Callers which arrive
+ * while a call is running wait for it and receive the same result instead of running their own.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, FutureTask<V>> mCalls = new ConcurrentHashMap<>();
+
+    V execute(K key, Callable<V> callable) throws IOException {
+        return execute(key, callable, Deadline.NONE);
+    }
+
+    /**
+     * Same as {@link #execute(Object, Callable)}, but waits on a call made by someone else for no
+     * longer than the deadline allows
+     */
+    V execute(K key, Callable<V> callable, Deadline deadline) throws IOException {
+        FutureTask<V> task = new FutureTask<>(callable);
+        FutureTask<V> inFlight = mCalls.putIfAbsent(key, task);
+        if (inFlight == null) {
+            inFlight = task;
+            try {
+                task.run();
+            } finally {
+                mCalls.remove(key, task);
+            }
+        }
+        try {
+            if (deadline.hasDeadline()) {
+                return inFlight.get(deadline.remainingNanos("wait on " + key), TimeUnit.NANOSECONDS);
+            }
+            return inFlight.get();
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("Timed out while waiting on " + key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
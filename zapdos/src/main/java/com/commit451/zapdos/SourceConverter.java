@@ -0,0 +1,139 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.drive.DriveApi;
+import com.google.android.gms.drive.DriveContents;
+import com.google.android.gms.drive.DriveFile;
+import com.google.android.gms.drive.Metadata;
+import com.google.android.gms.drive.MetadataBuffer;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Turns a {@link MetadataBuffer} into an object by streaming the contents of the first file in
+ * it, so that parsers can read straight off of Drive without copying everything into a String first
+ */
+public abstract class SourceConverter<T> implements ItemConverter<T>, BackendConverter<T> {
+
+    private GoogleApiClient mGoogleApiClient;
+    private Zapdos mZapdos;
+
+    /**
+     * Read the contents through the client. When a {@link Zapdos} reads a file for a service
+     * method, the contents are opened through it instead, under its rate limit and content cache.
+     */
+    public SourceConverter(GoogleApiClient apiClient) {
+        mGoogleApiClient = apiClient;
+    }
+
+    /**
+     * Read the contents through the given Zapdos, so that they come from its content cache when
+     * it has one. See {@link Zapdos.Builder#contentCache(java.io.File, long)}
+     */
+    public SourceConverter(Zapdos zapdos) {
+        mZapdos = zapdos;
+    }
+
+    /**
+     * Called to read an object of type T from the contents of the file. The source is closed
+     * for you once this returns.
+     *
+     * @param source The contents of the file
+     */
+    public abstract T getFromSource(BufferedSource source) throws IOException;
+
+    @Override
+    public T convert(MetadataBuffer value) throws IOException {
+        return convert(value, null);
+    }
+
+    /**
+     * Same as {@link #convert(MetadataBuffer)}, for the call the buffer was read by
+     */
+    T convert(MetadataBuffer value, @Nullable Call call) throws IOException {
+        if (value.getCount() > 0) {
+            return convert(value.get(0), call);
+        }
+        return null;
+    }
+
+    /**
+     * Open the contents of the file described by the metadata and read them into an object of type T
+     */
+    @Override
+    public T convert(Metadata metadata) throws IOException {
+        return convert(metadata, null);
+    }
+
+    /**
+     * Same as {@link #convert(Metadata)}, but the contents are opened through the driver which
+     * made the call, so that opening them takes a rate limit permit and has to meet the deadline
+     * of the call, whichever constructor this was created with
+     *
+     * @param call the call the file is read for, or null to open it without one
+     */
+    T convert(Metadata metadata, @Nullable Call call) throws IOException {
+        if (call != null) {
+            return read(call.driver.open(metadata, call), call);
+        }
+        if (mZapdos != null) {
+            return read(mZapdos.driver.open(metadata, null), null);
+        }
+        DriveApi.DriveContentsResult result = Deadline.NONE.awaitResult(
+                metadata.getDriveId().asDriveFile().open(mGoogleApiClient, DriveFile.MODE_READ_ONLY, null),
+                "open file");
+        Deadline.check(result.getStatus(), "open file");
+        DriveContents driveContents = result.getDriveContents();
+        try {
+            return read(Okio.buffer(Okio.source(driveContents.getInputStream())), null);
+        } finally {
+            driveContents.discard(mGoogleApiClient);
+        }
+    }
+
+    /**
+     * Read the contents into an object of type T and close them, counting the bytes for the call
+     */
+    private T read(BufferedSource contents, @Nullable Call call) throws IOException {
+        if (call == null) {
+            try {
+                return getFromSource(contents);
+            } finally {
+                contents.close();
+            }
+        }
+        long start = System.nanoTime();
+        final long[] byteCount = new long[1];
+        BufferedSource source = Okio.buffer(new ForwardingSource(contents) {
+            @Override
+            public long read(Buffer sink, long count) throws IOException {
+                long read = super.read(sink, count);
+                if (read != -1) {
+                    byteCount[0] += read;
+                }
+                return read;
+            }
+        });
+        try {
+            return getFromSource(source);
+        } finally {
+            source.close();
+            call.bodyRead(byteCount[0], start);
+        }
+    }
+
+    /**
+     * Open the contents of the file through the backend and read them into an object of type T
+     */
+    @Override
+    public T convert(Backend backend, Backend.Entry entry) throws IOException {
+        return read(backend.open(entry.id), null);
+    }
+}
@@ -1,23 +1,24 @@
 package com.commit451.zapdos;
 
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.drive.DriveContents;
-import com.google.android.gms.drive.DriveFile;
-import com.google.android.gms.drive.Metadata;
 import com.google.android.gms.drive.MetadataBuffer;
 
 import java.io.IOException;
-import java.io.InputStream;
+
+import okio.BufferedSource;
 
 /**
- * Easy implementation which turns a {@link MetadataBuffer} into a string
+ * Easy implementation which turns a {@link MetadataBuffer} into a string. Prefer
+ * {@link SourceConverter} for large files, since this holds the whole file in memory.
  */
-public abstract class StringConverter<T> implements Converter<MetadataBuffer, T> {
-
-    private GoogleApiClient mGoogleApiClient;
+public abstract class StringConverter<T> extends SourceConverter<T> {
 
     public StringConverter(GoogleApiClient apiClient) {
-        mGoogleApiClient = apiClient;
+        super(apiClient);
+    }
+
+    public StringConverter(Zapdos zapdos) {
+        super(zapdos);
     }
 
     /**
@@ -28,20 +29,7 @@ public abstract class StringConverter<T> implements Converter<MetadataBuffer, T>
     public abstract T getFromString(String string);
 
     @Override
-    public T convert(MetadataBuffer value) throws IOException {
-        if (value.getCount() > 0) {
-            Metadata metadata = value.get(0);
-
-            DriveContents driveContents = metadata.getDriveId().asDriveFile().open(mGoogleApiClient, DriveFile.MODE_READ_ONLY, null)
-                    .await()
-                    .getDriveContents();
-            if (driveContents == null) {
-                return null;
-            }
-            InputStream inputStream = driveContents.getInputStream();
-            String string = Utils.read(inputStream);
-            return getFromString(string);
-        }
-        return null;
+    public T getFromSource(BufferedSource source) throws IOException {
+        return getFromString(source.readUtf8());
     }
 }
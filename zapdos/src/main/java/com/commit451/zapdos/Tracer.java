@@ -0,0 +1,184 @@
+package com.commit451.zapdos;
+
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a span for each phase of each call, such as resolving the folder, every round trip to
+ * Drive and writing or reading the body, into a fixed size ring buffer. Once the buffer is full,
+ * the oldest spans are overwritten. {@link #dump()} the buffer as Chrome trace event JSON and load
+ * it into chrome://tracing to see where a slow call spent its time.
+ * <p>
+ * Each call gets its own track, with its phases nested within the span of the whole call.
+ */
+public final class Tracer {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final long mEpochNanos = System.nanoTime();
+    private final AtomicLong mNextTrack = new AtomicLong(1);
+    //guarded by this
+    private final Span[] mSpans;
+    private long mCount;
+
+    /**
+     * Create a tracer which keeps the latest 4096 spans
+     */
+    public Tracer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of spans to keep
+     */
+    public Tracer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        mSpans = new Span[capacity];
+    }
+
+    long nextTrack() {
+        return mNextTrack.getAndIncrement();
+    }
+
+    /**
+     * Record a finished span
+     *
+     * @param bytes      the size of the payload, or -1 if there is none
+     * @param statusCode the status Drive responded with, or -1 if there was no round trip
+     */
+    void record(String name, long track, @Nullable Method method, @Nullable String path, long startNanos,
+                long endNanos, long bytes, int statusCode, @Nullable Throwable error) {
+        Span span = new Span(name, track, method, path, Math.max(0, startNanos - mEpochNanos),
+                Math.max(0, endNanos - startNanos), bytes, statusCode, error);
+        synchronized (this) {
+            mSpans[(int) (mCount % mSpans.length)] = span;
+            mCount++;
+        }
+    }
+
+    /**
+     * Forget every span recorded so far
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < mSpans.length; i++) {
+            mSpans[i] = null;
+        }
+        mCount = 0;
+    }
+
+    /**
+     * Get the spans in the buffer, oldest first, as Chrome trace event JSON
+     */
+    public String dump() {
+        Span[] spans;
+        synchronized (this) {
+            int size = (int) Math.min(mCount, mSpans.length);
+            spans = new Span[size];
+            int oldest = (int) ((mCount - size) % mSpans.length);
+            for (int i = 0; i < size; i++) {
+                spans[i] = mSpans[(oldest + i) % mSpans.length];
+            }
+        }
+        StringBuilder builder = new StringBuilder("{\"traceEvents\":[");
+        for (int i = 0; i < spans.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            spans[i].writeTo(builder);
+        }
+        return builder.append("],\"displayTimeUnit\":\"ms\"}").toString();
+    }
+
+    private static final class Span {
+        final String name;
+        final long track;
+        @Nullable final Method method;
+        @Nullable final String path;
+        final long startNanos;
+        final long durationNanos;
+        final long bytes;
+        final int statusCode;
+        @Nullable final Throwable error;
+
+        Span(String name, long track, @Nullable Method method, @Nullable String path, long startNanos,
+             long durationNanos, long bytes, int statusCode, @Nullable Throwable error) {
+            this.name = name;
+            this.track = track;
+            this.method = method;
+            this.path = path;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.bytes = bytes;
+            this.statusCode = statusCode;
+            this.error = error;
+        }
+
+        void writeTo(StringBuilder builder) {
+            builder.append("{\"name\":");
+            writeString(builder, name);
+            builder.append(",\"cat\":\"zapdos\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(track)
+                    .append(",\"ts\":").append(micros(startNanos))
+                    .append(",\"dur\":").append(micros(durationNanos))
+                    .append(",\"args\":{\"method\":");
+            writeString(builder, method == null ? "Backend"
+                    : method.getDeclaringClass().getSimpleName() + "." + method.getName());
+            if (path != null) {
+                builder.append(",\"path\":");
+                writeString(builder, path);
+            }
+            if (bytes >= 0) {
+                builder.append(",\"bytes\":").append(bytes);
+            }
+            if (statusCode != -1) {
+                builder.append(",\"status\":").append(statusCode);
+            }
+            if (error != null) {
+                builder.append(",\"error\":");
+                writeString(builder, error.toString());
+            }
+            builder.append("}}");
+        }
+
+        private static String micros(long nanos) {
+            //trace events are in microseconds, keep the fraction so short phases still show up
+            return TimeUnit.NANOSECONDS.toMicros(nanos) + "." + String.format(Locale.US, "%03d", nanos % 1000);
+        }
+
+        private static void writeString(StringBuilder builder, String value) {
+            builder.append('"');
+            for (int i = 0, length = value.length(); i < length; i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            builder.append(String.format(Locale.US, "\\u%04x", (int) c));
+                        } else {
+                            builder.append(c);
+                        }
+                }
+            }
+            builder.append('"');
+        }
+    }
+}
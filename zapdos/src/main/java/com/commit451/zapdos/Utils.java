@@ -1,10 +1,8 @@
 package com.commit451.zapdos;
 
-
-import android.support.annotation.Nullable;
-
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
@@ -12,6 +10,9 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
 
+import okio.BufferedSource;
+import okio.Okio;
+
 final class Utils {
 
     static <T> T checkNotNull(T object, String message) {
@@ -21,6 +22,39 @@ final class Utils {
         return object;
     }
 
+    static Class<?> getRawType(Type type) {
+        checkNotNull(type, "type == null");
+
+        if (type instanceof Class<?>) {
+            // Type is a normal class.
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+
+            // I'm not exactly sure why getRawType() returns Type instead of Class. Neal isn't either but
+            // suspects some pathological case related to nested classes exists.
+            Type rawType = parameterizedType.getRawType();
+            if (!(rawType instanceof Class)) throw new IllegalArgumentException();
+            return (Class<?>) rawType;
+        }
+        if (type instanceof GenericArrayType) {
+            Type componentType = ((GenericArrayType) type).getGenericComponentType();
+            return Array.newInstance(getRawType(componentType), 0).getClass();
+        }
+        if (type instanceof TypeVariable) {
+            // We could use the variable's bounds, but that won't work if there are multiple. Having a raw
+            // type that's more general than necessary is okay.
+            return Object.class;
+        }
+        if (type instanceof WildcardType) {
+            return getRawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+
+        throw new IllegalArgumentException("Expected a Class, ParameterizedType, or "
+                + "GenericArrayType, but <" + type + "> is of type " + type.getClass().getName());
+    }
+
     static boolean hasUnresolvableType(Type type) {
         if (type instanceof Class<?>) {
             return false;
@@ -48,19 +82,15 @@ final class Utils {
                 + "GenericArrayType, but <" + type + "> is of type " + className);
     }
 
-    @Nullable
-    public static String read(InputStream inputStream) {
-        ByteArrayOutputStream result = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int length;
+    /**
+     * Read the whole stream as a UTF-8 string, closing it once done
+     */
+    static String read(InputStream inputStream) throws IOException {
+        BufferedSource source = Okio.buffer(Okio.source(inputStream));
         try {
-            while ((length = inputStream.read(buffer)) != -1) {
-                result.write(buffer, 0, length);
-            }
-            return result.toString("UTF-8");
-        } catch (Exception e) {
-            // :(
-            return null;
+            return source.readUtf8();
+        } finally {
+            source.close();
         }
     }
 
@@ -0,0 +1,105 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.drive.DriveId;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
+
+/**
+ * Write-behind for rapid writes to the same path. The first write to a path opens a window, and
+ * only the latest body written before the window closes is uploaded. Every write made within the
+ * window completes with the {@link DriveId} of that one upload. The timeout of the upload starts
+ * once the window closes.
+ */
+class WriteCoalescer {
+
+    private static final int LOCK_STRIPES = 16;
+
+    private final Driver mDriver;
+    private final long mWindowMillis;
+    private final Scheduler mScheduler;
+    //guarded by this
+    private final Map<String, Pending> mPending = new HashMap<>();
+    //keeps uploads to the same path from overlapping when one runs longer than a window
+    private final Object[] mUploadLocks = new Object[LOCK_STRIPES];
+
+    WriteCoalescer(Driver driver, long window, TimeUnit unit) {
+        mDriver = driver;
+        mWindowMillis = unit.toMillis(window);
+        mScheduler = Schedulers.io();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mUploadLocks[i] = new Object();
+        }
+    }
+
+    Observable<DriveId> write(final Request request) {
+        return Observable.defer(new Func0<Observable<DriveId>>() {
+            @Override
+            public Observable<DriveId> call() {
+                final String key = request.mimeType + ' ' + request.uri;
+                Pending pending;
+                boolean opened = false;
+                synchronized (WriteCoalescer.this) {
+                    pending = mPending.get(key);
+                    if (pending == null) {
+                        pending = new Pending();
+                        mPending.put(key, pending);
+                        opened = true;
+                    }
+                    //later writes supersede earlier ones
+                    pending.request = request;
+                }
+                if (opened) {
+                    scheduleUpload(key);
+                }
+                return pending.result;
+            }
+        });
+    }
+
+    private void scheduleUpload(final String key) {
+        final Scheduler.Worker worker = mScheduler.createWorker();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                try {
+                    upload(key);
+                } finally {
+                    worker.unsubscribe();
+                }
+            }
+        }, mWindowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void upload(String key) {
+        synchronized (mUploadLocks[(key.hashCode() & 0x7fffffff) % LOCK_STRIPES]) {
+            Pending pending;
+            synchronized (this) {
+                //anything written from here on opens a new window
+                pending = mPending.remove(key);
+            }
+            try {
+                //the timeout of the write starts now, so waiting out the window does not use it up
+                DriveId driveId = mDriver.write(pending.request);
+                pending.result.onNext(driveId);
+                pending.result.onCompleted();
+            } catch (IOException | RuntimeException e) {
+                pending.result.onError(e);
+            }
+        }
+    }
+
+    private static class Pending {
+        final AsyncSubject<DriveId> result = AsyncSubject.create();
+        Request request;
+    }
+}
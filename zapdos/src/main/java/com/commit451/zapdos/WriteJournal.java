@@ -0,0 +1,533 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.drive.DriveId;
+import com.google.android.gms.drive.MetadataChangeSet;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.ProtocolException;
+import java.util.HashMap;
+import java.util.Map;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Append-only file of the writes made while the {@link GoogleApiClient} is disconnected. Each
+ * write costs one local append and completes right away. Once the client connects, the journal
+ * is replayed in order, with only the latest write to each path being uploaded. Writes keep
+ * going to the journal until it has been replayed, so they never land before older ones. Writes
+ * which can never succeed, and whatever cannot be read, are moved aside to a file next to the
+ * journal with a .corrupt suffix, so they do not hold up the writes after them.
+ * <p>
+ * Only the title, mime type, description and starred state of the metadata are kept.
+ */
+class WriteJournal {
+
+    private static final String TAG = "Zapdos";
+    private static final int VERSION = 1;
+
+    private final File mFile;
+    //holds the entries being replayed, so that they survive the process dying mid drain
+    private final File mDrainingFile;
+    //holds whatever will never be replayed, to be looked into rather than read back
+    private final File mCorruptFile;
+    private final Driver mDriver;
+    private final GoogleApiClient mGoogleApiClient;
+    private final RetryPolicy mRetryPolicy;
+    private final Scheduler mScheduler;
+    //guards the file, so appends never interleave with the drainer taking entries
+    private final Object mLock = new Object();
+    //guards draining, so that only one drain runs at a time
+    private final Object mDrainLock = new Object();
+    //whether there are entries which have not been replayed yet. Guarded by mLock
+    private boolean mPending;
+    //whether the file has been cut back to its last complete entry since it was opened. Guarded by mLock
+    private boolean mRepaired;
+
+    /**
+     * @param retryPolicy decides which failed uploads are worth trying again on the next drain
+     */
+    WriteJournal(File file, Driver driver, GoogleApiClient googleApiClient, RetryPolicy retryPolicy) {
+        mFile = file;
+        mDrainingFile = new File(file.getPath() + ".draining");
+        mCorruptFile = new File(file.getPath() + ".corrupt");
+        mDriver = driver;
+        mGoogleApiClient = googleApiClient;
+        mRetryPolicy = retryPolicy;
+        mScheduler = Schedulers.io();
+        mPending = mFile.exists() || mDrainingFile.exists();
+        googleApiClient.registerConnectionCallbacks(new GoogleApiClient.ConnectionCallbacks() {
+            @Override
+            public void onConnected(@Nullable Bundle bundle) {
+                scheduleDrain();
+            }
+
+            @Override
+            public void onConnectionSuspended(int cause) {
+            }
+        });
+        if (googleApiClient.isConnected()) {
+            //catch up on whatever a previous process left behind
+            scheduleDrain();
+        }
+    }
+
+    private boolean isOffline() {
+        return !mGoogleApiClient.isConnected();
+    }
+
+    /**
+     * Journal the write if the client is disconnected, or if earlier writes are still waiting in
+     * the journal, so that a write never lands before an older one to the same path. Otherwise
+     * make the live write. A journaled write completes without emitting, since the file does not
+     * exist in Drive yet.
+     */
+    Observable<DriveId> write(final Request request, final Observable<DriveId> live) {
+        return Observable.defer(new Func0<Observable<DriveId>>() {
+            @Override
+            public Observable<DriveId> call() {
+                synchronized (mLock) {
+                    if (!isOffline() && !mPending) {
+                        return live;
+                    }
+                    try {
+                        append(request);
+                    } catch (IOException e) {
+                        return Observable.error(e);
+                    }
+                    mPending = true;
+                }
+                if (!isOffline()) {
+                    //connected while we were writing, so nothing else will drain this
+                    scheduleDrain();
+                }
+                return Observable.empty();
+            }
+        });
+    }
+
+    private void append(Request request) throws IOException {
+        Buffer records = new Buffer();
+        if (request.isBatch()) {
+            for (RequestBody body : request.requestBodies) {
+                //a batch item is written the same way as a single write to its own path
+                String title = body.metadataChangeSet == null ? null : body.metadataChangeSet.getTitle();
+                if (title == null) {
+                    throw new IllegalArgumentException("Each body in a batch needs a title");
+                }
+                writeRecord(records, request.uri.buildUpon().appendPath(title).build(),
+                        request.mimeType, body);
+            }
+        } else {
+            writeRecord(records, request.uri, request.mimeType, request.requestBody);
+        }
+        if (!mRepaired) {
+            repair();
+            mRepaired = true;
+        }
+        BufferedSink sink = Okio.buffer(Okio.sink(new FileOutputStream(mFile, true)));
+        try {
+            sink.writeAll(records);
+        } finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * Cut the file back to its last complete entry, so that appends never land after an entry
+     * which the process dying cut short, where they could not be read back. Whatever after it
+     * cannot be read is moved aside first.
+     */
+    private void repair() throws IOException {
+        Scan scan = scan(mFile);
+        if (scan.size == mFile.length()) {
+            return;
+        }
+        if (scan.corrupt) {
+            quarantine(mFile, scan.size);
+        }
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(scan.size);
+        } finally {
+            file.close();
+        }
+    }
+
+    private void scheduleDrain() {
+        final Scheduler.Worker worker = mScheduler.createWorker();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                try {
+                    drain();
+                } finally {
+                    worker.unsubscribe();
+                }
+            }
+        });
+    }
+
+    /**
+     * Upload everything in the journal, including whatever is journaled along the way. The journal
+     * is moved to the draining file a batch at a time, and each batch is replayed before the next
+     * is taken, so older writes always land first. Whatever fails to upload for a reason which may
+     * pass stays in the draining file, to be tried again the next time the client connects.
+     */
+    void drain() {
+        synchronized (mDrainLock) {
+            while (true) {
+                synchronized (mLock) {
+                    if (!mDrainingFile.exists()) {
+                        if (!mFile.exists()) {
+                            //caught up, so writes can go straight to Drive again
+                            mPending = false;
+                            return;
+                        }
+                        if (!mFile.renameTo(mDrainingFile)) {
+                            Log.e(TAG, "Failed to move " + mFile + " to " + mDrainingFile);
+                            return;
+                        }
+                    }
+                }
+                if (!replay()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Upload the entries of the draining file one at a time, skipping those superseded by a later
+     * write to the same path, so only one body is held in memory at once. Replay stops at the first
+     * entry which fails for a reason which may pass, such as the client disconnecting, while an
+     * entry which can never succeed is moved aside so that the entries after it still go through.
+     *
+     * @return true if every entry was uploaded and the draining file is gone
+     */
+    private boolean replay() {
+        Scan scan;
+        try {
+            scan = scan(mDrainingFile);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read write journal", e);
+            return false;
+        }
+        if (scan.corrupt) {
+            quarantine(mDrainingFile, scan.size);
+        }
+        int index = 0;
+        try {
+            BufferedSource source = Okio.buffer(Okio.source(mDrainingFile));
+            try {
+                for (; index < scan.count; index++) {
+                    Entry entry = Entry.readFrom(source);
+                    if (scan.latest.get(entry.key()) != index) {
+                        source.skip(entry.contentLength);
+                        continue;
+                    }
+                    if (isOffline()) {
+                        break;
+                    }
+                    ByteString contents = source.readByteString(entry.contentLength);
+                    try {
+                        mDriver.write(entry.toRequest(contents));
+                    } catch (IOException | RuntimeException e) {
+                        if (isTransient(e)) {
+                            Log.e(TAG, "Failed to replay journaled write to " + entry.uri, e);
+                            break;
+                        }
+                        Log.e(TAG, "Moving aside journaled write to " + entry.uri + ", which cannot succeed", e);
+                        reject(entry, contents);
+                    }
+                }
+            } finally {
+                source.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read write journal", e);
+            return false;
+        }
+        if (index < scan.count) {
+            keepFrom(index, scan.count);
+            return false;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        mDrainingFile.delete();
+        return true;
+    }
+
+    /**
+     * Whether a failed upload may go through if it is tried again later
+     */
+    private boolean isTransient(Exception e) {
+        return isOffline() || e instanceof InterruptedIOException || mRetryPolicy.isRetryable(e);
+    }
+
+    /**
+     * Move an entry which can never be uploaded to the corrupt file
+     */
+    private void reject(Entry entry, ByteString contents) throws IOException {
+        BufferedSink sink = Okio.buffer(Okio.sink(new FileOutputStream(mCorruptFile, true)));
+        try {
+            entry.writeTo(sink);
+            sink.write(contents);
+        } finally {
+            sink.close();
+        }
+    }
+
+    /**
+     * Copy what cannot be read, from the given offset on, to the corrupt file before it is dropped,
+     * so that it can still be looked into without getting in the way of the next drain
+     */
+    private void quarantine(File file, long from) {
+        try {
+            BufferedSource source = Okio.buffer(Okio.source(file));
+            BufferedSink sink = Okio.buffer(Okio.sink(new FileOutputStream(mCorruptFile, true)));
+            try {
+                source.skip(from);
+                sink.writeAll(source);
+            } finally {
+                source.close();
+                sink.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to quarantine write journal", e);
+        }
+    }
+
+    /**
+     * Drop the entries of the draining file which were already uploaded, along with anything
+     * unreadable after the last good entry, so the next drain starts where this one stopped
+     */
+    private void keepFrom(int from, int count) {
+        File temp = new File(mDrainingFile.getPath() + ".tmp");
+        try {
+            BufferedSource source = Okio.buffer(Okio.source(mDrainingFile));
+            BufferedSink sink = Okio.buffer(Okio.sink(temp));
+            try {
+                for (int index = 0; index < count; index++) {
+                    Entry entry = Entry.readFrom(source);
+                    if (index < from) {
+                        source.skip(entry.contentLength);
+                        continue;
+                    }
+                    entry.writeTo(sink);
+                    sink.write(source, entry.contentLength);
+                }
+            } finally {
+                source.close();
+                sink.close();
+            }
+            if (!temp.renameTo(mDrainingFile)) {
+                throw new IOException("Failed to move " + temp + " to " + mDrainingFile);
+            }
+        } catch (IOException e) {
+            //the whole file is replayed again next time, which still leaves the latest writes in place
+            Log.e(TAG, "Failed to trim write journal", e);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    /**
+     * Read through the entries of the file without their contents, finding which entry is the
+     * latest write to each path. Reading stops at the first entry which cannot be read, and the
+     * entries before it are still replayed.
+     */
+    static Scan scan(File file) throws IOException {
+        Scan scan = new Scan();
+        BufferedSource source;
+        try {
+            source = Okio.buffer(Okio.source(file));
+        } catch (FileNotFoundException e) {
+            return scan;
+        }
+        try {
+            while (!source.exhausted()) {
+                Entry entry = Entry.readFrom(source);
+                source.skip(entry.contentLength);
+                scan.latest.put(entry.key(), scan.count++);
+                scan.size += entry.headerSize() + entry.contentLength;
+            }
+        } catch (EOFException e) {
+            //the last append was cut short, most likely by the process dying, so drop it
+            Log.w(TAG, "Dropping incomplete entry at the end of the write journal");
+        } catch (ProtocolException e) {
+            Log.e(TAG, "Skipping the rest of the write journal, which cannot be read", e);
+            scan.corrupt = true;
+        } finally {
+            source.close();
+        }
+        return scan;
+    }
+
+    static void writeRecord(BufferedSink records, Uri uri, String mimeType, RequestBody body) throws IOException {
+        Buffer contents = new Buffer();
+        body.writeTo(contents);
+        MetadataChangeSet metadata = body.metadataChangeSet;
+        new Entry(uri.toString(), mimeType,
+                metadata == null ? null : metadata.getTitle(),
+                metadata == null ? null : metadata.getMimeType(),
+                metadata == null ? null : metadata.getDescription(),
+                metadata == null ? null : metadata.isStarred(),
+                (int) contents.size())
+                .writeTo(records);
+        records.writeAll(contents);
+    }
+
+    /**
+     * The entries of a journal file which can be read, and which of them to replay
+     */
+    static class Scan {
+        //the index of the latest entry for each path
+        final Map<String, Integer> latest = new HashMap<>();
+        int count;
+        //the length of the entries which can be read, which is where anything torn or unreadable starts
+        long size;
+        //whether there is more after the last entry which could not be read
+        boolean corrupt;
+    }
+
+    /**
+     * A journaled write. Only the header is held, the contents follow it in the journal.
+     */
+    static class Entry {
+        final String uri;
+        final String mimeType;
+        @Nullable final String title;
+        @Nullable final String metadataMimeType;
+        @Nullable final String description;
+        @Nullable final Boolean starred;
+        final int contentLength;
+
+        Entry(String uri, String mimeType, @Nullable String title, @Nullable String metadataMimeType,
+              @Nullable String description, @Nullable Boolean starred, int contentLength) {
+            this.uri = uri;
+            this.mimeType = mimeType;
+            this.title = title;
+            this.metadataMimeType = metadataMimeType;
+            this.description = description;
+            this.starred = starred;
+            this.contentLength = contentLength;
+        }
+
+        /**
+         * Writes to the same path and mime type supersede each other
+         */
+        String key() {
+            return mimeType + ' ' + uri;
+        }
+
+        Request toRequest(ByteString contents) {
+            MetadataChangeSet.Builder metadata = new MetadataChangeSet.Builder();
+            if (title != null) {
+                metadata.setTitle(title);
+            }
+            if (metadataMimeType != null) {
+                metadata.setMimeType(metadataMimeType);
+            }
+            if (description != null) {
+                metadata.setDescription(description);
+            }
+            if (starred != null) {
+                metadata.setStarred(starred);
+            }
+            Request request = new Request(Uri.parse(uri), Driver.METHOD_CREATE,
+                    RequestBody.create(metadata.build(), contents.toByteArray()));
+            request.mimeType = mimeType;
+            return request;
+        }
+
+        /**
+         * Write the header of the entry, which the contents have to follow
+         */
+        void writeTo(BufferedSink sink) throws IOException {
+            sink.writeInt(VERSION);
+            writeString(sink, uri);
+            writeString(sink, mimeType);
+            writeString(sink, title);
+            writeString(sink, metadataMimeType);
+            writeString(sink, description);
+            sink.writeByte(starred == null ? -1 : (starred ? 1 : 0));
+            sink.writeInt(contentLength);
+        }
+
+        /**
+         * Get the length of the header written by {@link #writeTo(BufferedSink)}
+         */
+        long headerSize() {
+            return 4 + stringSize(uri) + stringSize(mimeType) + stringSize(title)
+                    + stringSize(metadataMimeType) + stringSize(description) + 1 + 4;
+        }
+
+        /**
+         * Read the header of an entry, leaving the source at its contents
+         */
+        static Entry readFrom(BufferedSource source) throws IOException {
+            int version = source.readInt();
+            if (version != VERSION) {
+                throw new ProtocolException("Unknown write journal version " + version);
+            }
+            String uri = readString(source);
+            String mimeType = readString(source);
+            if (uri == null || mimeType == null) {
+                throw new ProtocolException("Write journal entry is missing its uri or mime type");
+            }
+            String title = readString(source);
+            String metadataMimeType = readString(source);
+            String description = readString(source);
+            byte starred = source.readByte();
+            int contentLength = source.readInt();
+            if (starred < -1 || starred > 1 || contentLength < 0) {
+                throw new ProtocolException("Malformed write journal entry for " + uri);
+            }
+            return new Entry(uri, mimeType, title, metadataMimeType, description,
+                    starred == -1 ? null : starred == 1, contentLength);
+        }
+
+        private static void writeString(BufferedSink sink, @Nullable String value) throws IOException {
+            if (value == null) {
+                sink.writeInt(-1);
+                return;
+            }
+            ByteString bytes = ByteString.encodeUtf8(value);
+            sink.writeInt(bytes.size());
+            sink.write(bytes);
+        }
+
+        private static long stringSize(@Nullable String value) {
+            return 4 + (value == null ? 0 : ByteString.encodeUtf8(value).size());
+        }
+
+        @Nullable
+        private static String readString(BufferedSource source) throws IOException {
+            int length = source.readInt();
+            if (length < -1) {
+                throw new ProtocolException("Malformed write journal string length " + length);
+            }
+            return length == -1 ? null : source.readUtf8(length);
+        }
+    }
+}
@@ -5,19 +5,28 @@ import android.support.annotation.NonNull;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.Scope;
 import com.google.android.gms.drive.Drive;
+import com.google.android.gms.drive.DriveId;
 import com.google.android.gms.drive.MetadataBuffer;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import rx.Observable;
+import rx.functions.Func0;
+import rx.functions.Func1;
 
 import static com.commit451.zapdos.Utils.checkNotNull;
 
@@ -26,13 +35,30 @@ import static com.commit451.zapdos.Utils.checkNotNull;
  */
 public final class Zapdos {
 
-    final Map<Method, ServiceMethod> serviceMethodCache = new LinkedHashMap<>();
+    final Map<Method, ServiceMethod> serviceMethodCache = new ConcurrentHashMap<>();
+    private final SingleFlight<Method, ServiceMethod> serviceMethodBuilds = new SingleFlight<>();
     Driver driver;
+    //set to store everything through this instead of the driver
+    Backend backend;
+    WriteCoalescer writeCoalescer;
+    WriteJournal writeJournal;
+    boolean nonBlocking;
+    long timeoutMillis;
+    RetryPolicy retryPolicy;
+    EventListener eventListener = EventListener.NONE;
     Scope scope;
+    int batchConcurrency;
+    boolean validateEagerly;
+    Executor validationExecutor;
     List<Converter.Factory> converterFactories;
+    boolean shareConverters;
+    private final Map<ConverterKey, ResolvedConverter> requestBodyConverters = new ConcurrentHashMap<>();
+    private final Map<ConverterKey, ResolvedConverter> responseBodyConverters = new ConcurrentHashMap<>();
 
     private Zapdos() {
         converterFactories = new ArrayList<>();
+        //first, so that reads of metadata alone never open the contents of a file
+        converterFactories.add(new BuiltInConverters());
     }
 
     /**
@@ -65,12 +91,29 @@ public final class Zapdos {
         checkNotNull(parameterAnnotations, "parameterAnnotations == null");
         checkNotNull(methodAnnotations, "methodAnnotations == null");
 
+        ConverterKey key = new ConverterKey(skipPast, type, parameterAnnotations, methodAnnotations);
+        ResolvedConverter resolved = requestBodyConverters.get(key);
+        if (resolved != null) {
+            if (resolved.converter != null) {
+                //noinspection unchecked
+                return (Converter<T, RequestBody>) resolved.converter;
+            }
+            //go straight to the factory that handled it last time
+            Converter<?, RequestBody> converter = converterFactories.get(resolved.factoryIndex)
+                    .requestBodyConverter(type, parameterAnnotations, methodAnnotations, this);
+            if (converter != null) {
+                //noinspection unchecked
+                return (Converter<T, RequestBody>) converter;
+            }
+        }
+
         int start = converterFactories.indexOf(skipPast) + 1;
         for (int i = start, count = converterFactories.size(); i < count; i++) {
             Converter.Factory factory = converterFactories.get(i);
             Converter<?, RequestBody> converter =
                     factory.requestBodyConverter(type, parameterAnnotations, methodAnnotations, this);
             if (converter != null) {
+                requestBodyConverters.put(key, new ResolvedConverter(i, shareConverters ? converter : null));
                 //noinspection unchecked
                 return (Converter<T, RequestBody>) converter;
             }
@@ -114,11 +157,27 @@ public final class Zapdos {
         checkNotNull(type, "type == null");
         checkNotNull(annotations, "annotations == null");
 
+        ConverterKey key = new ConverterKey(skipPast, type, annotations, null);
+        ResolvedConverter resolved = responseBodyConverters.get(key);
+        if (resolved != null) {
+            if (resolved.converter != null) {
+                //noinspection unchecked
+                return (Converter<MetadataBuffer, T>) resolved.converter;
+            }
+            Converter<MetadataBuffer, ?> converter = converterFactories.get(resolved.factoryIndex)
+                    .responseBodyConverter(type, annotations, this);
+            if (converter != null) {
+                //noinspection unchecked
+                return (Converter<MetadataBuffer, T>) converter;
+            }
+        }
+
         int start = converterFactories.indexOf(skipPast) + 1;
         for (int i = start, count = converterFactories.size(); i < count; i++) {
             Converter<MetadataBuffer, ?> converter =
                     converterFactories.get(i).responseBodyConverter(type, annotations, this);
             if (converter != null) {
+                responseBodyConverters.put(key, new ResolvedConverter(i, shareConverters ? converter : null));
                 //noinspection unchecked
                 return (Converter<MetadataBuffer, T>) converter;
             }
@@ -143,6 +202,9 @@ public final class Zapdos {
 
     @SuppressWarnings("unchecked")
     public <T> T create(final Class<T> service) {
+        if (validateEagerly) {
+            eagerlyValidateMethods(service);
+        }
 
         return (T) Proxy.newProxyInstance(service.getClassLoader(), new Class<?>[] { service },
                 new InvocationHandler() {
@@ -157,37 +219,197 @@ public final class Zapdos {
                             throw new IllegalArgumentException("We can only return Observables");
                         }
                         ServiceMethod serviceMethod = loadServiceMethod(method);
+                        long start = System.nanoTime();
                         Request request = serviceMethod.toRequest(args);
+                        eventListener.requestBuilt(method, System.nanoTime() - start);
+                        RetryPolicy policy = retryPolicy == null ? RetryPolicy.DEFAULT : retryPolicy;
+                        //a body which cannot be written again cannot be retried
+                        int writeRetries = request.isRepeatable() ? request.maxRetries : 0;
+                        if (backend != null) {
+                            return invokeBackend(serviceMethod, request, policy, writeRetries);
+                        }
                         switch (request.method) {
                             case Driver.METHOD_CREATE:
-                                return ObservableFactory.create(driver, request);
+                                Observable<DriveId> create = create(request, policy, writeRetries);
+                                if (writeJournal != null) {
+                                    //decides on subscription whether the write goes to the journal instead
+                                    create = writeJournal.write(request, create);
+                                }
+                                return create;
                             case Driver.METHOD_READ:
-                                return ObservableFactory.read(driver, request, serviceMethod);
+                                if (request.each) {
+                                    if (nonBlocking) {
+                                        return ObservableFactory.readEachAsync(driver, request, serviceMethod,
+                                                policy, request.maxRetries);
+                                    }
+                                    return ObservableFactory.readEach(driver, request, serviceMethod,
+                                            policy, request.maxRetries);
+                                }
+                                //noinspection unchecked
+                                return read(serviceMethod, request, policy);
                         }
                         throw new IllegalArgumentException("Something is wrong with your interface");
                     }
                 });
     }
 
-    ServiceMethod loadServiceMethod(Method method) {
-        ServiceMethod result;
-        synchronized (serviceMethodCache) {
-            result = serviceMethodCache.get(method);
-            if (result == null) {
-                result = new ServiceMethod.Builder(this, method).build();
-                serviceMethodCache.put(method, result);
+    /**
+     * Start a deadline for the request each time the observable is subscribed to, and build the
+     * observable under it, so that every attempt shares it and retries cannot stretch the operation
+     * past its timeout. The request is shared by every subscription, so the deadline is never kept on it.
+     */
+    private static <T> Observable<T> withDeadline(final Request request,
+                                                  final Func1<Deadline, Observable<T>> observable) {
+        return Observable.defer(new Func0<Observable<T>>() {
+            @Override
+            public Observable<T> call() {
+                return observable.call(Deadline.after(request.timeoutMillis));
+            }
+        });
+    }
+
+    private Observable<DriveId> create(final Request request, final RetryPolicy policy, final int writeRetries) {
+        if (writeCoalescer != null && !request.isBatch()) {
+            //the deadline starts once the window closes and the upload begins
+            return writeCoalescer.write(request);
+        }
+        return withDeadline(request, new Func1<Deadline, Observable<DriveId>>() {
+            @Override
+            public Observable<DriveId> call(Deadline deadline) {
+                if (request.isBatch()) {
+                    return ObservableFactory.createBatch(driver, request, deadline, batchConcurrency, policy,
+                            writeRetries);
+                }
+                if (nonBlocking) {
+                    return policy.apply(ObservableFactory.createAsync(driver, request, deadline), writeRetries);
+                }
+                return policy.apply(ObservableFactory.create(driver, request, deadline), writeRetries);
+            }
+        });
+    }
+
+    private <T> Observable<T> read(final ServiceMethod<T> serviceMethod, final Request request,
+                                   final RetryPolicy policy) {
+        return withDeadline(request, new Func1<Deadline, Observable<T>>() {
+            @Override
+            public Observable<T> call(Deadline deadline) {
+                if (nonBlocking) {
+                    return policy.apply(ObservableFactory.readAsync(driver, request, deadline, serviceMethod),
+                            request.maxRetries);
+                }
+                return policy.apply(ObservableFactory.read(driver, request, deadline, serviceMethod),
+                        request.maxRetries);
+            }
+        });
+    }
+
+    private Observable<?> invokeBackend(ServiceMethod serviceMethod, Request request, RetryPolicy policy,
+                                        int writeRetries) {
+        switch (request.method) {
+            case Driver.METHOD_CREATE:
+                if (request.isBatch()) {
+                    return ObservableFactory.createBatch(backend, request, batchConcurrency, policy, writeRetries);
+                }
+                return policy.apply(ObservableFactory.create(backend, request), writeRetries);
+            case Driver.METHOD_READ:
+                //noinspection unchecked
+                return policy.apply(ObservableFactory.read(backend, request, serviceMethod), request.maxRetries);
+        }
+        throw new IllegalArgumentException("Something is wrong with your interface");
+    }
+
+    private void eagerlyValidateMethods(final Class<?> service) {
+        if (validationExecutor == null) {
+            //an invalid method fails create, on the thread of the caller
+            for (Method method : service.getDeclaredMethods()) {
+                loadServiceMethod(method);
+            }
+            return;
+        }
+        validationExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Method method : service.getDeclaredMethods()) {
+                    try {
+                        loadServiceMethod(method);
+                    } catch (RuntimeException e) {
+                        //never cached, so invoking it throws on the thread of the caller instead
+                    }
+                }
             }
+        });
+    }
+
+    ServiceMethod loadServiceMethod(final Method method) {
+        long start = System.nanoTime();
+        //cache hits never lock
+        ServiceMethod result = serviceMethodCache.get(method);
+        if (result != null) {
+            eventListener.serviceMethodLoaded(method, true, System.nanoTime() - start);
+            return result;
+        }
+        //only one thread builds each method, everyone else asking for it waits on that build
+        try {
+            result = serviceMethodBuilds.execute(method, new Callable<ServiceMethod>() {
+                @Override
+                public ServiceMethod call() throws Exception {
+                    ServiceMethod result = serviceMethodCache.get(method);
+                    if (result == null) {
+                        result = new ServiceMethod.Builder(Zapdos.this, method).build();
+                        serviceMethodCache.put(method, result);
+                    }
+                    return result;
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Interrupted while building " + method, e);
         }
+        eventListener.serviceMethodLoaded(method, false, System.nanoTime() - start);
         return result;
     }
 
+    /**
+     * The index of the factory which created a converter, along with the converter itself if
+     * converters are being shared
+     */
+    private static class ResolvedConverter {
+        final int factoryIndex;
+        final Converter<?, ?> converter;
+
+        ResolvedConverter(int factoryIndex, Converter<?, ?> converter) {
+            this.factoryIndex = factoryIndex;
+            this.converter = converter;
+        }
+    }
+
     public static class Builder {
 
+        private static final int DEFAULT_BATCH_CONCURRENCY = 4;
+
         private Zapdos mZapdos;
+        private GoogleApiClient mGoogleApiClient;
+        private int mFolderCacheSize = FolderCache.DEFAULT_MAX_SIZE;
+        private int mFileCacheSize = FileCache.DEFAULT_MAX_SIZE;
+        private int mBatchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+        private boolean mValidateEagerly;
+        private boolean mShareConverters;
+        private boolean mSkipUnchangedWrites;
+        private long mCoalesceWindowMillis;
+        private File mContentCacheDirectory;
+        private long mContentCacheSize;
+        private File mJournalFile;
+        private boolean mNonBlocking;
+        private long mTimeoutMillis;
+        private double mRateLimit;
+        private RetryPolicy mRetryPolicy;
+        private EventListener mEventListener = EventListener.NONE;
+        private Tracer mTracer;
+        private Executor mValidationExecutor;
+        private Backend mBackend;
 
         public Builder(GoogleApiClient googleApiClient) {
             mZapdos = new Zapdos();
-            mZapdos.driver = new Driver(googleApiClient);
+            mGoogleApiClient = googleApiClient;
         }
 
         /**
@@ -209,10 +431,285 @@ public final class Zapdos {
             return this;
         }
 
+        /**
+         * Set the maximum number of resolved folders to remember, so that repeat operations
+         * within the same folders do not have to walk the path again
+         * @param size the number of folders to cache
+         * @return builder
+         */
+        public Builder folderCacheSize(int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Folder cache size must be positive");
+            }
+            mFolderCacheSize = size;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of written files to remember, so that rewriting them can skip
+         * looking them up by title
+         * @param size the number of files to cache
+         * @return builder
+         */
+        public Builder fileCacheSize(int size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("File cache size must be positive");
+            }
+            mFileCacheSize = size;
+            return this;
+        }
+
+        /**
+         * Set how many files of a batch {@link com.commit451.zapdos.drive.CREATE} may be uploaded at once
+         * @param concurrency the number of concurrent uploads
+         * @return builder
+         */
+        public Builder batchConcurrency(int concurrency) {
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("Batch concurrency must be positive");
+            }
+            mBatchConcurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * When enabled, every method of an interface is validated and prepared as soon as
+         * {@link Zapdos#create(Class)} is called, rather than on its first invocation. An invalid
+         * method makes {@link Zapdos#create(Class)} throw.
+         * @param validateEagerly true to validate eagerly
+         * @return builder
+         */
+        public Builder validateEagerly(boolean validateEagerly) {
+            mValidateEagerly = validateEagerly;
+            mValidationExecutor = null;
+            return this;
+        }
+
+        /**
+         * Validate and prepare every method of an interface on the executor as soon as
+         * {@link Zapdos#create(Class)} is called, so the reflection is done by the time the methods are
+         * first invoked. Methods which fail validation still throw when they are invoked.
+         * @param executor the executor to validate on
+         * @return builder
+         */
+        public Builder validateEagerly(@NonNull Executor executor) {
+            mValidateEagerly = true;
+            mValidationExecutor = checkNotNull(executor, "executor == null");
+            return this;
+        }
+
+        /**
+         * When enabled, a converter created for a type and set of annotations is reused by every
+         * service method which asks for the same thing, instead of each getting its own. Only
+         * enable this if your converters are safe to share.
+         * @param shareConverters true to share converters
+         * @return builder
+         */
+        public Builder shareConverters(boolean shareConverters) {
+            mShareConverters = shareConverters;
+            return this;
+        }
+
+        /**
+         * When enabled, writing the same bytes to a path that were last written to it by this
+         * instance returns the existing file without uploading anything. Only bodies created from a
+         * byte array can be compared, and a change to the metadata alone is not written. Writes made
+         * to the file from elsewhere are not noticed, so only enable this if this app is the only writer.
+         * @param skipUnchangedWrites true to skip writes which would not change anything
+         * @return builder
+         */
+        public Builder skipUnchangedWrites(boolean skipUnchangedWrites) {
+            mSkipUnchangedWrites = skipUnchangedWrites;
+            return this;
+        }
+
+        /**
+         * Coalesce rapid writes to the same path. The first write to a path waits for the window
+         * before uploading, and only the latest body written to the path within the window is
+         * uploaded. Every write made within the window receives the {@link com.google.android.gms.drive.DriveId}
+         * of that upload. Useful for autosave style writes. Batch writes are never coalesced.
+         * @param window how long to wait for further writes after the first, or 0 to disable
+         * @param unit the unit of the window
+         * @return builder
+         */
+        public Builder coalesceWrites(long window, @NonNull TimeUnit unit) {
+            if (window < 0) {
+                throw new IllegalArgumentException("Coalescing window must not be negative");
+            }
+            mCoalesceWindowMillis = unit.toMillis(window);
+            return this;
+        }
+
+        /**
+         * Cache the contents of files read through a {@link SourceConverter} created with this
+         * instance. Cached contents are served for as long as the modified date of the file matches
+         * the one it had when it was downloaded, and the least recently used files are evicted
+         * once the cache grows past its max size. Use a directory dedicated to this cache, such as
+         * one within {@link android.content.Context#getCacheDir()}.
+         * @param directory the directory to store the contents in
+         * @param maxSize the max size of the cache in bytes
+         * @return builder
+         */
+        public Builder contentCache(@NonNull File directory, long maxSize) {
+            if (maxSize <= 0) {
+                throw new IllegalArgumentException("Content cache size must be greater than 0");
+            }
+            mContentCacheDirectory = checkNotNull(directory, "directory == null");
+            mContentCacheSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Journal writes made while the {@link GoogleApiClient} is disconnected to a file instead
+         * of failing them. A journaled write completes right away without emitting a
+         * {@link com.google.android.gms.drive.DriveId}. Once the client connects, the journal is
+         * uploaded in order, and only the latest write to each path is uploaded. Writes made while
+         * the journal is still being uploaded are journaled too, so they never land before older
+         * ones. Writes which fail to upload for a reason which may pass, such as the connection
+         * dropping, stay in the journal until the next time the client connects or something else
+         * is journaled. Those which can never succeed, as decided by the {@link RetryPolicy}, are
+         * moved to a file next to it with a .corrupt suffix, along with anything which cannot be read.
+         * Only the title, mime type, description and starred state of the metadata are journaled.
+         * @param file the file to keep the journal in, such as one within {@link android.content.Context#getFilesDir()}
+         * @return builder
+         */
+        public Builder journalOfflineWrites(@NonNull File file) {
+            mJournalFile = checkNotNull(file, "file == null");
+            return this;
+        }
+
+        /**
+         * Chain the Drive calls of each operation off of their result callbacks instead of
+         * waiting on them, so that a thread is not tied up for every operation in flight. Folders
+         * which have not been resolved yet are still walked on the io scheduler. Writes complete
+         * on the looper of the {@link GoogleApiClient}, and reads complete on the io scheduler.
+         * Batch and coalesced writes always block.
+         * @param nonBlocking true to avoid blocking a thread while waiting on Drive
+         * @return builder
+         */
+        public Builder nonBlocking(boolean nonBlocking) {
+            mNonBlocking = nonBlocking;
+            return this;
+        }
+
+        /**
+         * The time each operation may take, from resolving its folder to committing its contents,
+         * before it fails with an {@link java.io.InterruptedIOException}. Every call made to Drive
+         * waits for no longer than the time left. Methods can override this with
+         * {@link com.commit451.zapdos.drive.Timeout}. By default, operations take as long as they take.
+         * @param timeout the timeout, or 0 for none
+         * @param unit the unit of the timeout
+         * @return builder
+         */
+        public Builder timeout(long timeout, @NonNull TimeUnit unit) {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("Timeout must not be negative");
+            }
+            mTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Limit how many calls are made to Drive per second. Calls beyond the limit wait for
+         * their turn instead of being made. Whenever Drive reports that its rate limit was
+         * exceeded, the limit is halved, and it then climbs back with every call which succeeds.
+         * An operation usually makes a few calls, such as a query, an open and a commit.
+         * @param callsPerSecond the most calls to make per second, or 0 for no limit
+         * @return builder
+         */
+        public Builder rateLimit(double callsPerSecond) {
+            if (callsPerSecond < 0 || Double.isNaN(callsPerSecond)) {
+                throw new IllegalArgumentException("Rate limit must not be negative");
+            }
+            mRateLimit = callsPerSecond;
+            return this;
+        }
+
+        /**
+         * Retry operations which fail in a way that is worth retrying, such as a network error,
+         * backing off with jitter in between. Methods can override the max retries with
+         * {@link com.commit451.zapdos.drive.Retry}. By default, nothing is retried. Coalesced and
+         * journaled writes are not retried. The timeout covers every attempt together, and each
+         * page of an {@link com.commit451.zapdos.drive.Each} read gets its own.
+         * @param retryPolicy the policy, such as {@link RetryPolicy#DEFAULT}
+         * @return builder
+         */
+        public Builder retryPolicy(@NonNull RetryPolicy retryPolicy) {
+            mRetryPolicy = checkNotNull(retryPolicy, "retryPolicy == null");
+            return this;
+        }
+
+        /**
+         * Listen for the phases of every call, such as resolving folders, round trips to Drive and
+         * converting results, along with how long each took. Use {@link Metrics} to aggregate them
+         * per method.
+         * @param eventListener the listener
+         * @return builder
+         */
+        public Builder eventListener(@NonNull EventListener eventListener) {
+            mEventListener = checkNotNull(eventListener, "eventListener == null");
+            return this;
+        }
+
+        /**
+         * Record a span for every phase of every call, such as resolving folders, each round trip
+         * to Drive and writing the body, tagged with the method, path and payload size. Dump the
+         * tracer as Chrome trace event JSON to see where a slow call spent its time.
+         * @param tracer the tracer
+         * @return builder
+         */
+        public Builder tracer(@NonNull Tracer tracer) {
+            mTracer = checkNotNull(tracer, "tracer == null");
+            return this;
+        }
+
+        /**
+         * Store everything through the backend instead of Google Drive, such as a
+         * {@link LocalBackend} to work offline or to measure Zapdos without waiting on Drive.
+         * Writes emit the {@link Backend.Entry} of the file instead of a
+         * {@link com.google.android.gms.drive.DriveId}, and reads need converters which implement
+         * {@link BackendConverter}. Calls to the backend block, and cannot be coalesced,
+         * journaled or narrowed down with filter parameters.
+         * @param backend the backend
+         * @return builder
+         */
+        public Builder backend(@NonNull Backend backend) {
+            mBackend = checkNotNull(backend, "backend == null");
+            return this;
+        }
+
         public Zapdos build() {
             if (mZapdos.scope == null) {
                 throw new IllegalArgumentException("You need to set a scope");
             }
+            if (mBackend != null && (mCoalesceWindowMillis > 0 || mJournalFile != null)) {
+                throw new IllegalArgumentException("Writes through a Backend cannot be coalesced or journaled");
+            }
+            mZapdos.driver = new Driver(mGoogleApiClient, new FolderCache(mFolderCacheSize),
+                    new FileCache(mFileCacheSize),
+                    mSkipUnchangedWrites ? new ContentHashes(ContentHashes.DEFAULT_MAX_SIZE) : null,
+                    mContentCacheDirectory == null ? null : new ContentCache(mContentCacheDirectory, mContentCacheSize),
+                    mRateLimit == 0 ? RateLimiter.UNLIMITED : new RateLimiter(mRateLimit), mEventListener,
+                    mTracer);
+            if (mCoalesceWindowMillis > 0) {
+                mZapdos.writeCoalescer = new WriteCoalescer(mZapdos.driver, mCoalesceWindowMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+            if (mJournalFile != null) {
+                mZapdos.writeJournal = new WriteJournal(mJournalFile, mZapdos.driver, mGoogleApiClient,
+                        mRetryPolicy == null ? RetryPolicy.DEFAULT : mRetryPolicy);
+            }
+            mZapdos.nonBlocking = mNonBlocking;
+            mZapdos.timeoutMillis = mTimeoutMillis;
+            mZapdos.retryPolicy = mRetryPolicy;
+            mZapdos.eventListener = mEventListener;
+            mZapdos.batchConcurrency = mBatchConcurrency;
+            mZapdos.validateEagerly = mValidateEagerly;
+            mZapdos.validationExecutor = mValidationExecutor;
+            mZapdos.backend = mBackend;
+            mZapdos.shareConverters = mShareConverters;
+            //lookups are memoized by factory index, so the factories cannot change from here on
+            mZapdos.converterFactories = Collections.unmodifiableList(mZapdos.converterFactories);
             return mZapdos;
         }
     }
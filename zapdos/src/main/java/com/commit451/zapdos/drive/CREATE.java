@@ -7,7 +7,11 @@ import java.lang.annotation.Target;
 import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
-/** Creates a new item in Google Drive */
+/**
+ * Creates a new item in Google Drive. If the {@link Body} parameter is an {@link Iterable} or an
+ * array, every item is written into the folder at the path, named by the title of its
+ * {@link com.commit451.zapdos.RequestBody#metadataChangeSet MetadataChangeSet}.
+ */
 @Documented
 @Target(METHOD)
 @Retention(RUNTIME)
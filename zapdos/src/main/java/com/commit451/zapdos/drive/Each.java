@@ -0,0 +1,20 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Makes a {@link READ} emit every file of its mime type within the folder at its path, rather
+ * than the first file whose title matches the last segment of the path. Files are listed with a
+ * single query, then converted one at a time as they are requested downstream. Requires a
+ * converter which can convert a single file, such as a {@link com.commit451.zapdos.SourceConverter}.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Each {
+}
@@ -0,0 +1,25 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Only read files modified after the value, which must be a {@link java.util.Date} or a
+ * {@code long} of milliseconds since the epoch. Null values are skipped.
+ * <p>
+ * Simple example:
+ * <pre><code>
+ * &#64;Each
+ * &#64;READ("journals")
+ * Observable&lt;Journal&gt; changedSince(@ModifiedAfter long lastSync);
+ * </code></pre>
+ */
+@Documented
+@Target(PARAMETER)
+@Retention(RUNTIME)
+public @interface ModifiedAfter {
+}
@@ -0,0 +1,36 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Only read files whose custom property has the value, as set with
+ * {@link com.google.android.gms.drive.MetadataChangeSet.Builder#setCustomProperty}. Values are
+ * converted to string using {@link String#valueOf(Object)}, and null values are skipped.
+ * <p>
+ * Simple example:
+ * <pre><code>
+ * &#64;Each
+ * &#64;READ("journals")
+ * Observable&lt;Journal&gt; byAuthor(@Property("author") String author);
+ * </code></pre>
+ */
+@Documented
+@Target(PARAMETER)
+@Retention(RUNTIME)
+public @interface Property {
+
+    /**
+     * The key of the property
+     */
+    String value();
+
+    /**
+     * Whether the property is visible to every app, rather than private to this one
+     */
+    boolean isPublic() default false;
+}
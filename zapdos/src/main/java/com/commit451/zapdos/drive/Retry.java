@@ -0,0 +1,25 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * How many times to retry the method when it fails in a way which is worth retrying. Overrides
+ * the max retries of the {@link com.commit451.zapdos.RetryPolicy} set with
+ * {@link com.commit451.zapdos.Zapdos.Builder#retryPolicy(com.commit451.zapdos.RetryPolicy)}, or
+ * of {@link com.commit451.zapdos.RetryPolicy#DEFAULT} if none was set. Use 0 to never retry.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Retry {
+
+    /**
+     * The max retries, not counting the first attempt
+     */
+    int value();
+}
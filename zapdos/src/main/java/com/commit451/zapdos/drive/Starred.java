@@ -0,0 +1,18 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Only read files which are starred if the value is true, or which are not if it is false. The
+ * parameter must be a {@code boolean}, and null values are skipped.
+ */
+@Documented
+@Target(PARAMETER)
+@Retention(RUNTIME)
+public @interface Starred {
+}
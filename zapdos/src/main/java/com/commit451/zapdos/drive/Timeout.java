@@ -0,0 +1,27 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * The time the whole operation may take, from resolving its folder to committing its contents,
+ * before it fails with an {@link java.io.InterruptedIOException}. Overrides the default set with
+ * {@link com.commit451.zapdos.Zapdos.Builder#timeout(long, TimeUnit)}.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Timeout {
+
+    /**
+     * The timeout, which must be greater than 0
+     */
+    long value();
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
@@ -0,0 +1,20 @@
+package com.commit451.zapdos.drive;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Only read files with exactly this title. Unlike the last segment of a {@link READ} path, which
+ * matches every title containing it, this is matched exactly by Drive. Most useful along with
+ * {@link Each}. Values are converted to string using {@link String#valueOf(Object)}, and null
+ * values are skipped.
+ */
+@Documented
+@Target(PARAMETER)
+@Retention(RUNTIME)
+public @interface Title {
+}
@@ -0,0 +1,112 @@
+package com.commit451.zapdos;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ContentCacheTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private ContentCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = mTemporaryFolder.newFolder();
+        mCache = new ContentCache(mDirectory, 10);
+    }
+
+    @Test
+    public void servesWhatWasPut() throws Exception {
+        assertNull(mCache.get("first", 1));
+        assertEquals("hello", read(mCache.put("first", 1, 5, new Buffer().writeUtf8("hello"))));
+        assertEquals("hello", read(mCache.get("first", 1)));
+    }
+
+    @Test
+    public void modifiedFilesAreDropped() throws Exception {
+        read(mCache.put("first", 1, 5, new Buffer().writeUtf8("hello")));
+        assertNull(mCache.get("first", 2));
+        //the stale copy is gone, not just skipped
+        assertNull(mCache.get("first", 1));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        read(mCache.put("a", 1, 4, new Buffer().writeUtf8("aaaa")));
+        read(mCache.put("b", 1, 4, new Buffer().writeUtf8("bbbb")));
+        read(mCache.get("a", 1));
+        read(mCache.put("c", 1, 4, new Buffer().writeUtf8("cccc")));
+        assertNull(mCache.get("b", 1));
+        assertEquals("aaaa", read(mCache.get("a", 1)));
+        assertEquals("cccc", read(mCache.get("c", 1)));
+    }
+
+    @Test
+    public void filesTooBigAreNotCached() throws Exception {
+        assertEquals("hello world", read(mCache.put("big", 1, 11, new Buffer().writeUtf8("hello world"))));
+        assertNull(mCache.get("big", 1));
+    }
+
+    @Test
+    public void idsAreNotUsedAsFileNames() throws Exception {
+        read(mCache.put("DriveId:Cae/../x", 1, 2, new Buffer().writeUtf8("hi")));
+        assertEquals("hi", read(mCache.get("DriveId:Cae/../x", 1)));
+        String[] names = mDirectory.list();
+        assertEquals(1, names.length);
+        assertFalse(names[0].contains("DriveId"));
+    }
+
+    @Test
+    public void survivesARestart() throws Exception {
+        read(mCache.put("first", 7, 5, new Buffer().writeUtf8("hello")));
+        //along with a download which never finished
+        assertTrue(new File(mDirectory, "junk.tmp").createNewFile());
+
+        ContentCache restarted = new ContentCache(mDirectory, 10);
+        assertEquals("hello", read(restarted.get("first", 7)));
+        assertFalse(new File(mDirectory, "junk.tmp").exists());
+    }
+
+    @Test
+    public void removeForgetsTheFile() throws Exception {
+        read(mCache.put("first", 1, 5, new Buffer().writeUtf8("hello")));
+        mCache.remove("first");
+        assertNull(mCache.get("first", 1));
+        assertEquals(0, mDirectory.list().length);
+    }
+
+    @Test
+    public void filesDeletedFromDiskAreMisses() throws Exception {
+        read(mCache.put("first", 1, 5, new Buffer().writeUtf8("hello")));
+        for (File file : mDirectory.listFiles()) {
+            assertTrue(file.delete());
+        }
+        assertNull(mCache.get("first", 1));
+        //the missing file no longer counts towards the size, so a full sized file still fits
+        read(mCache.put("second", 1, 10, new Buffer().writeUtf8("0123456789")));
+        assertEquals("0123456789", read(mCache.get("second", 1)));
+    }
+
+    private static String read(BufferedSource source) throws IOException {
+        try {
+            return source.readUtf8();
+        } finally {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.drive.DriveId;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import okio.Buffer;
+import okio.ByteString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ContentHashesTest {
+
+    private static final String MIME_TYPE = "text/plain";
+
+    private ContentHashes mHashes;
+    private DriveId mDriveId;
+
+    @Before
+    public void setUp() {
+        mHashes = new ContentHashes(2);
+        mDriveId = new DriveId("resource", 1, 1, DriveId.RESOURCE_TYPE_FILE);
+    }
+
+    @Test
+    public void sameBytesAreUnchanged() {
+        mHashes.put("notes/first", MIME_TYPE, hash("hello"), mDriveId);
+        assertSame(mDriveId, mHashes.getUnchanged("notes/first", MIME_TYPE, hash("hello")));
+    }
+
+    @Test
+    public void differentBytesAreWritten() {
+        mHashes.put("notes/first", MIME_TYPE, hash("hello"), mDriveId);
+        assertNull(mHashes.getUnchanged("notes/first", MIME_TYPE, hash("goodbye")));
+    }
+
+    @Test
+    public void pathAndMimeTypeMatter() {
+        mHashes.put("notes/first", MIME_TYPE, hash("hello"), mDriveId);
+        assertNull(mHashes.getUnchanged("notes/second", MIME_TYPE, hash("hello")));
+        assertNull(mHashes.getUnchanged("notes/first", "application/json", hash("hello")));
+    }
+
+    @Test
+    public void removeForgetsThePath() {
+        mHashes.put("notes/first", MIME_TYPE, hash("hello"), mDriveId);
+        mHashes.remove("notes/first", MIME_TYPE);
+        assertNull(mHashes.getUnchanged("notes/first", MIME_TYPE, hash("hello")));
+    }
+
+    @Test
+    public void removingTheFileForgetsItsPaths() {
+        mHashes.put("notes/first", MIME_TYPE, hash("hello"), mDriveId);
+        mHashes.remove(mDriveId);
+        assertNull(mHashes.getUnchanged("notes/first", MIME_TYPE, hash("hello")));
+    }
+
+    @Test
+    public void leastRecentlyUsedPathIsEvicted() {
+        mHashes.put("notes/first", MIME_TYPE, hash("1"), mDriveId);
+        mHashes.put("notes/second", MIME_TYPE, hash("2"), mDriveId);
+        mHashes.getUnchanged("notes/first", MIME_TYPE, hash("1"));
+        mHashes.put("notes/third", MIME_TYPE, hash("3"), mDriveId);
+        assertSame(mDriveId, mHashes.getUnchanged("notes/first", MIME_TYPE, hash("1")));
+        assertNull(mHashes.getUnchanged("notes/second", MIME_TYPE, hash("2")));
+    }
+
+    @Test
+    public void byteBodiesHashTheirContents() {
+        RequestBody body = RequestBody.create(null, "hello".getBytes());
+        assertEquals(hash("hello"), body.contentHash());
+        body.bytes = "goodbye".getBytes();
+        assertNotEquals(hash("hello"), body.contentHash());
+    }
+
+    @Test
+    public void streamedBodiesCannotBeHashed() {
+        assertNull(RequestBody.create(null, new Buffer().writeUtf8("hello")).contentHash());
+    }
+
+    private static ByteString hash(String contents) {
+        return ByteString.encodeUtf8(contents).md5();
+    }
+}
@@ -0,0 +1,94 @@
+package com.commit451.zapdos;
+
+import com.commit451.zapdos.drive.Body;
+import com.commit451.zapdos.drive.Path;
+
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ConverterKeyTest {
+
+    interface Service {
+
+        void body(@Body String body);
+
+        void sameBody(@Body String body);
+
+        void path(@Path("name") String name);
+    }
+
+    @Test
+    public void sameLookupsAreEqual() throws Exception {
+        ConverterKey first = new ConverterKey(null, String.class, parameterAnnotations("body"), null);
+        ConverterKey second = new ConverterKey(null, String.class, parameterAnnotations("sameBody"), null);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void typeMatters() throws Exception {
+        Annotation[] annotations = parameterAnnotations("body");
+        assertNotEquals(new ConverterKey(null, String.class, annotations, null),
+                new ConverterKey(null, Integer.class, annotations, null));
+    }
+
+    @Test
+    public void genericTypesAreComparedByValue() throws Exception {
+        Method first = Lists.class.getDeclaredMethod("strings", List.class);
+        Method second = Lists.class.getDeclaredMethod("moreStrings", List.class);
+        Method third = Lists.class.getDeclaredMethod("integers", List.class);
+        Annotation[] none = new Annotation[0];
+        ConverterKey strings = new ConverterKey(null, first.getGenericParameterTypes()[0], none, null);
+        assertEquals(strings, new ConverterKey(null, second.getGenericParameterTypes()[0], none, null));
+        assertNotEquals(strings, new ConverterKey(null, third.getGenericParameterTypes()[0], none, null));
+    }
+
+    @Test
+    public void annotationsMatter() throws Exception {
+        assertNotEquals(new ConverterKey(null, String.class, parameterAnnotations("body"), null),
+                new ConverterKey(null, String.class, parameterAnnotations("path"), null));
+    }
+
+    @Test
+    public void skipPastIsComparedByIdentity() throws Exception {
+        Annotation[] annotations = parameterAnnotations("body");
+        Converter.Factory factory = new Converter.Factory() {
+        };
+        assertEquals(new ConverterKey(factory, String.class, annotations, null),
+                new ConverterKey(factory, String.class, annotations, null));
+        assertNotEquals(new ConverterKey(factory, String.class, annotations, null),
+                new ConverterKey(new Converter.Factory() {
+                }, String.class, annotations, null));
+        assertNotEquals(new ConverterKey(factory, String.class, annotations, null),
+                new ConverterKey(null, String.class, annotations, null));
+    }
+
+    @Test
+    public void methodAnnotationsMatter() throws Exception {
+        Annotation[] annotations = parameterAnnotations("body");
+        Annotation[] methodAnnotations = Service.class.getDeclaredMethod("body", String.class).getAnnotations();
+        assertEquals(new ConverterKey(null, String.class, annotations, methodAnnotations),
+                new ConverterKey(null, String.class, annotations, methodAnnotations));
+        assertNotEquals(new ConverterKey(null, String.class, annotations, methodAnnotations),
+                new ConverterKey(null, String.class, annotations, parameterAnnotations("path")));
+    }
+
+    private static Annotation[] parameterAnnotations(String methodName) throws Exception {
+        return Service.class.getDeclaredMethod(methodName, String.class).getParameterAnnotations()[0];
+    }
+
+    interface Lists {
+
+        void strings(List<String> values);
+
+        void moreStrings(List<String> values);
+
+        void integers(List<Integer> values);
+    }
+}
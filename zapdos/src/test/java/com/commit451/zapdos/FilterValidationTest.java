@@ -0,0 +1,137 @@
+package com.commit451.zapdos;
+
+import com.commit451.zapdos.drive.Body;
+import com.commit451.zapdos.drive.CREATE;
+import com.commit451.zapdos.drive.Each;
+import com.commit451.zapdos.drive.ModifiedAfter;
+import com.commit451.zapdos.drive.Path;
+import com.commit451.zapdos.drive.Property;
+import com.commit451.zapdos.drive.READ;
+import com.commit451.zapdos.drive.Starred;
+import com.commit451.zapdos.drive.Title;
+import com.google.android.gms.drive.Drive;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Date;
+
+import rx.Observable;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class FilterValidationTest {
+
+    interface Notes {
+
+        @Each
+        @READ("notes")
+        Observable<String> search(@Title String title, @ModifiedAfter Date modifiedAfter,
+                                  @Starred boolean starred, @Property("tag") String tag);
+
+        @Each
+        @READ("notes")
+        Observable<String> modifiedAfterMillis(@ModifiedAfter long modifiedAfter);
+
+        @CREATE("notes/{name}")
+        Observable<String> writeStarred(@Path("name") String name, @Starred boolean starred, @Body String note);
+
+        @Each
+        @READ("notes")
+        Observable<String> modifiedAfterText(@ModifiedAfter String modifiedAfter);
+
+        @Each
+        @READ("notes")
+        Observable<String> starredText(@Starred String starred);
+
+        @Each
+        @READ("notes")
+        Observable<String> badPropertyKey(@Property("not a key") String value);
+    }
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void filtersAreAcceptedOnReads() {
+        Notes notes = create(false);
+        notes.search("first", new Date(), true, "work");
+        notes.modifiedAfterMillis(0);
+    }
+
+    @Test
+    public void filtersCannotBeUsedOnWrites() {
+        assertInvalid("@Starred can only be used with @READ", new Runnable() {
+            @Override
+            public void run() {
+                create(false).writeStarred("first", true, "hello");
+            }
+        });
+    }
+
+    @Test
+    public void modifiedAfterMustBeADateOrALong() {
+        assertInvalid("@ModifiedAfter must be a Date or a long", new Runnable() {
+            @Override
+            public void run() {
+                create(false).modifiedAfterText("yesterday");
+            }
+        });
+    }
+
+    @Test
+    public void starredMustBeABoolean() {
+        assertInvalid("@Starred must be a boolean", new Runnable() {
+            @Override
+            public void run() {
+                create(false).starredText("yes");
+            }
+        });
+    }
+
+    @Test
+    public void propertyKeysMustBeValid() {
+        assertInvalid("Invalid @Property key", new Runnable() {
+            @Override
+            public void run() {
+                create(false).badPropertyKey("work");
+            }
+        });
+    }
+
+    @Test
+    public void filtersCannotBeUsedWithABackend() {
+        assertInvalid("@Title can only be used against Google Drive", new Runnable() {
+            @Override
+            public void run() {
+                create(true).search("first", new Date(), true, "work");
+            }
+        });
+    }
+
+    private Notes create(boolean withBackend) {
+        Zapdos.Builder builder = new Zapdos.Builder(null)
+                .baseScope(Drive.SCOPE_APPFOLDER)
+                .addConverterFactory(new LocalBackendTest.NoteConverterFactory());
+        if (withBackend) {
+            builder.backend(new LocalBackend(mTemporaryFolder.getRoot()));
+        }
+        return builder.build().create(Notes.class);
+    }
+
+    private static void assertInvalid(String message, Runnable invocation) {
+        try {
+            invocation.run();
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
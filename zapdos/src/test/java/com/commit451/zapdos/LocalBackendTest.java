@@ -0,0 +1,177 @@
+package com.commit451.zapdos;
+
+import com.commit451.zapdos.drive.Body;
+import com.commit451.zapdos.drive.CREATE;
+import com.commit451.zapdos.drive.Each;
+import com.commit451.zapdos.drive.Path;
+import com.commit451.zapdos.drive.READ;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.drive.Drive;
+import com.google.android.gms.drive.MetadataBuffer;
+import com.google.android.gms.drive.MetadataChangeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import rx.Observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class LocalBackendTest {
+
+    interface Notes {
+
+        @CREATE("notes/{name}")
+        Observable<Backend.Entry> write(@Path("name") String name, @Body String note);
+
+        @CREATE("notes")
+        Observable<Backend.Entry> writeAll(@Body List<String> notes);
+
+        @READ("notes/{name}")
+        Observable<String> read(@Path("name") String name);
+
+        @Each
+        @READ("notes")
+        Observable<String> readAll();
+
+        @Each
+        @READ("notes")
+        Observable<Backend.Entry> list();
+    }
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private Notes mNotes;
+
+    @Before
+    public void setUp() throws Exception {
+        mDirectory = mTemporaryFolder.newFolder();
+        Zapdos zapdos = new Zapdos.Builder(null)
+                .baseScope(Drive.SCOPE_APPFOLDER)
+                .backend(new LocalBackend(mDirectory))
+                .addConverterFactory(new NoteConverterFactory())
+                .build();
+        mNotes = zapdos.create(Notes.class);
+    }
+
+    @Test
+    public void writeThenRead() throws Exception {
+        Backend.Entry entry = mNotes.write("first", "hello").toBlocking().single();
+        assertEquals("first", entry.title);
+        assertEquals(5, entry.size);
+        assertTrue(new File(mDirectory, "app/notes/first").isFile());
+
+        assertEquals("hello", mNotes.read("first").toBlocking().single());
+    }
+
+    @Test
+    public void rewriteReplacesContents() throws Exception {
+        mNotes.write("first", "hello").toBlocking().single();
+        mNotes.write("first", "goodbye").toBlocking().single();
+        assertEquals("goodbye", mNotes.read("first").toBlocking().single());
+    }
+
+    @Test
+    public void readMissingFileEmitsNull() throws Exception {
+        assertNull(mNotes.read("missing").toBlocking().single());
+        //reads never create the folder
+        assertFalse(new File(mDirectory, "app/notes").exists());
+    }
+
+    @Test
+    public void batchThenReadEach() throws Exception {
+        List<Backend.Entry> written = mNotes.writeAll(Arrays.asList("a", "b", "c")).toList().toBlocking().single();
+        assertEquals(3, written.size());
+
+        List<String> notes = mNotes.readAll().toList().toBlocking().single();
+        Collections.sort(notes);
+        assertEquals(Arrays.asList("a", "b", "c"), notes);
+        assertEquals(3, mNotes.list().toList().toBlocking().single().size());
+    }
+
+    @Test
+    public void idsCannotEscapeTheDirectory() throws Exception {
+        LocalBackend backend = new LocalBackend(new File(mDirectory, "inner"));
+        assertTrue(new File(mDirectory, "secret").createNewFile());
+        try {
+            backend.open("app/../../secret");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            backend.delete("../secret");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            backend.query("app/..", null, "text/plain");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertTrue(new File(mDirectory, "secret").exists());
+    }
+
+    @Test
+    public void filesEndingInTmpAreListed() throws Exception {
+        mNotes.write("draft.tmp", "hello").toBlocking().single();
+        assertEquals(1, mNotes.list().toList().toBlocking().single().size());
+        //and nothing else was left behind by the write
+        assertEquals(1, new File(mDirectory, "app/notes").list().length);
+    }
+
+    /**
+     * Stores each note as its own title and contents
+     */
+    static class NoteConverterFactory extends Converter.Factory {
+
+        @Override
+        public Converter<MetadataBuffer, ?> responseBodyConverter(Type type, Annotation[] annotations, Zapdos zapdos) {
+            if (type == String.class) {
+                return new StringConverter<String>((GoogleApiClient) null) {
+                    @Override
+                    public String getFromString(String string) {
+                        return string;
+                    }
+                };
+            }
+            return null;
+        }
+
+        @Override
+        public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                              Annotation[] methodAnnotations, Zapdos zapdos) {
+            if (type == String.class) {
+                return new Converter<String, RequestBody>() {
+                    @Override
+                    public RequestBody convert(String value) {
+                        MetadataChangeSet metadata = new MetadataChangeSet.Builder()
+                                .setTitle(value)
+                                .build();
+                        return RequestBody.create(metadata, value.getBytes());
+                    }
+                };
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.commit451.zapdos;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    interface Notes {
+
+        void read();
+
+        void write();
+    }
+
+    private Metrics mMetrics;
+    private Method mRead;
+    private Method mWrite;
+
+    @Before
+    public void setUp() throws Exception {
+        mMetrics = new Metrics();
+        mRead = Notes.class.getMethod("read");
+        mWrite = Notes.class.getMethod("write");
+    }
+
+    @Test
+    public void talliesEachMethodOnItsOwn() {
+        mMetrics.callEnd(mRead, millis(2), 1, 0, null);
+        mMetrics.callEnd(mRead, millis(4), 2, 0, new IOException());
+        mMetrics.callEnd(mWrite, millis(1), 3, 100, null);
+        mMetrics.converted(mRead, millis(1));
+        mMetrics.folderResolved(mWrite, null, millis(3));
+
+        Metrics.MethodMetrics read = find("Notes.read");
+        assertEquals(2, read.getCount());
+        assertEquals(1, read.getFailures());
+        assertEquals(3, read.getRoundTrips());
+        assertEquals(0, read.getBytesWritten());
+        assertEquals(6, read.getTotalMillis());
+        assertEquals(4, read.getMaxMillis());
+        assertEquals(1, read.getConversionMillis());
+
+        Metrics.MethodMetrics write = find("Notes.write");
+        assertEquals(1, write.getCount());
+        assertEquals(100, write.getBytesWritten());
+        assertEquals(3, write.getFolderMillis());
+    }
+
+    @Test
+    public void bytesReadAddUp() {
+        mMetrics.bodyRead(mRead, 10, millis(1));
+        mMetrics.bodyRead(mRead, 5, millis(1));
+        mMetrics.callEnd(mRead, millis(2), 1, 0, null);
+        Metrics.MethodMetrics read = find("Notes.read");
+        assertEquals(15, read.getBytesRead());
+        assertTrue(read.toString(), read.toString().endsWith("bytesRead=15"));
+    }
+
+    @Test
+    public void latenciesAreBucketedByPowersOfTwo() {
+        mMetrics.callEnd(mRead, TimeUnit.MICROSECONDS.toNanos(500), 1, 0, null);
+        mMetrics.callEnd(mRead, millis(1), 1, 0, null);
+        mMetrics.callEnd(mRead, millis(3), 1, 0, null);
+        mMetrics.callEnd(mRead, millis(3), 1, 0, null);
+        //way past the last bucket
+        mMetrics.callEnd(mRead, TimeUnit.DAYS.toNanos(1), 1, 0, null);
+
+        Metrics.MethodMetrics read = find("Notes.read");
+        long[] histogram = new long[Metrics.MethodMetrics.BUCKET_COUNT];
+        histogram[0] = 1;
+        histogram[1] = 1;
+        histogram[2] = 2;
+        histogram[Metrics.MethodMetrics.BUCKET_COUNT - 1] = 1;
+        assertArrayEquals(histogram, read.getHistogram());
+        assertEquals(1, read.getPercentileMillis(0.2));
+        assertEquals(4, read.getPercentileMillis(0.5));
+        assertEquals(1L << (Metrics.MethodMetrics.BUCKET_COUNT - 1), read.getPercentileMillis(0.99));
+    }
+
+    @Test
+    public void backendCallsAreTalliedTogether() {
+        assertTrue(mMetrics.snapshot().isEmpty());
+        mMetrics.callEnd(null, millis(1), 1, 10, null);
+        mMetrics.callEnd(null, millis(1), 1, 10, null);
+        Metrics.MethodMetrics backend = find("Backend");
+        assertEquals(2, backend.getCount());
+        assertEquals(20, backend.getBytesWritten());
+    }
+
+    @Test
+    public void snapshotsAreCopies() {
+        mMetrics.callEnd(mRead, millis(1), 1, 0, null);
+        Metrics.MethodMetrics read = find("Notes.read");
+        mMetrics.callEnd(mRead, millis(1), 1, 0, null);
+        assertEquals(1, read.getCount());
+        assertEquals(2, find("Notes.read").getCount());
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        mMetrics.callEnd(mRead, millis(1), 1, 0, null);
+        mMetrics.callEnd(null, millis(1), 1, 0, null);
+        mMetrics.reset();
+        assertTrue(mMetrics.snapshot().isEmpty());
+        assertEquals("", mMetrics.dump());
+    }
+
+    @Test
+    public void dumpHasALinePerMethod() {
+        mMetrics.callEnd(mRead, millis(1), 1, 0, null);
+        mMetrics.callEnd(mWrite, millis(1), 1, 5, null);
+        String[] lines = mMetrics.dump().split("\n");
+        assertEquals(2, lines.length);
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("Notes.") && line.contains("count=1"));
+        }
+    }
+
+    private Metrics.MethodMetrics find(String name) {
+        List<Metrics.MethodMetrics> snapshot = mMetrics.snapshot();
+        for (Metrics.MethodMetrics metrics : snapshot) {
+            if (metrics.getName().equals(name)) {
+                return metrics;
+            }
+        }
+        throw new AssertionError("No metrics for " + name + " in " + snapshot);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,48 @@
+package com.commit451.zapdos;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PathTemplateTest {
+
+    @Test
+    public void noParams() {
+        PathTemplate template = PathTemplate.parse("notes/first");
+        assertEquals(0, template.paramCount());
+        assertEquals("notes/first", template.expand(new String[0]));
+    }
+
+    @Test
+    public void fillsEverySlot() {
+        PathTemplate template = PathTemplate.parse("users/{user}/notes/{name}.txt");
+        assertEquals(2, template.paramCount());
+        String[] values = new String[2];
+        values[template.indexOf("user")] = "jawnnypoo";
+        values[template.indexOf("name")] = "first";
+        assertEquals("users/jawnnypoo/notes/first.txt", template.expand(values));
+    }
+
+    @Test
+    public void repeatedParamsShareAValue() {
+        PathTemplate template = PathTemplate.parse("{name}/{name}-{version}");
+        assertEquals(2, template.paramCount());
+        String[] values = new String[2];
+        values[template.indexOf("name")] = "notes";
+        values[template.indexOf("version")] = "2";
+        assertEquals("notes/notes-2", template.expand(values));
+    }
+
+    @Test
+    public void paramsWithoutAValueKeepTheirPlaceholder() {
+        PathTemplate template = PathTemplate.parse("{folder}/notes/{name}");
+        String[] values = new String[2];
+        values[template.indexOf("name")] = "first";
+        assertEquals("{folder}/notes/first", template.expand(values));
+    }
+
+    @Test
+    public void unknownParams() {
+        assertEquals(-1, PathTemplate.parse("notes/{name}").indexOf("user"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.drive.DriveStatusCodes;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void unlimitedNeverWaits() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, RateLimiter.UNLIMITED.reserve(0));
+        }
+    }
+
+    @Test
+    public void burstsUpToASecondOfCalls() throws Exception {
+        RateLimiter limiter = new RateLimiter(2);
+        //the stored permits, then the call which queues the rest
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        long delay = limiter.reserve(Long.MAX_VALUE);
+        assertTrue(delay > 0 && delay <= SECOND / 2);
+    }
+
+    @Test
+    public void timingOutTakesNoPermit() throws Exception {
+        RateLimiter limiter = new RateLimiter(1);
+        limiter.reserve(Long.MAX_VALUE);
+        limiter.reserve(Long.MAX_VALUE);
+        assertEquals(-1, limiter.reserve(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertEquals(-1, limiter.reserve(TimeUnit.MILLISECONDS.toNanos(1)));
+        //had the timed out calls queued, this one would wait behind them
+        long delay = limiter.reserve(Long.MAX_VALUE);
+        assertTrue(delay > 0 && delay <= SECOND);
+    }
+
+    @Test
+    public void acquireThrowsWhenThePermitComesTooLate() throws Exception {
+        RateLimiter limiter = new RateLimiter(1);
+        limiter.acquire(Deadline.NONE, "query folder");
+        limiter.acquire(Deadline.NONE, "query folder");
+        try {
+            limiter.acquire(Deadline.after(10), "query folder");
+            fail();
+        } catch (InterruptedIOException expected) {
+        }
+        long delay = limiter.reserve(Long.MAX_VALUE);
+        assertTrue(delay > 0 && delay <= SECOND);
+    }
+
+    @Test
+    public void throttlingHalvesTheRate() throws Exception {
+        RateLimiter limiter = new RateLimiter(10);
+        limiter.onResult(new Status(DriveStatusCodes.DRIVE_RATE_LIMIT_EXCEEDED));
+        //throttles hitting calls made before the decrease do not decrease it again
+        limiter.onResult(new Status(DriveStatusCodes.DRIVE_RATE_LIMIT_EXCEEDED));
+        //no more bursting, so the second call waits a whole interval
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        assertInterval(SECOND / 5, limiter.reserve(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void successesClimbBackToTheMax() throws Exception {
+        RateLimiter limiter = new RateLimiter(10);
+        limiter.onResult(new Status(DriveStatusCodes.DRIVE_RATE_LIMIT_EXCEEDED));
+        //each success adds a hundredth of the max
+        for (int i = 0; i < 50; i++) {
+            limiter.onResult(new Status(CommonStatusCodes.SUCCESS));
+        }
+        //and never goes past it
+        limiter.onResult(new Status(CommonStatusCodes.SUCCESS));
+        assertEquals(0, limiter.reserve(Long.MAX_VALUE));
+        assertInterval(SECOND / 10, limiter.reserve(Long.MAX_VALUE));
+    }
+
+    private static void assertInterval(long expected, long actual) {
+        //time passes between the two reserves, so the wait may be a little shorter
+        assertTrue("Expected about " + expected + " but was " + actual,
+                actual <= expected && actual > expected - TimeUnit.MILLISECONDS.toNanos(50));
+    }
+}
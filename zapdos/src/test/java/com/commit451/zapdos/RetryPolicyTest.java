@@ -0,0 +1,115 @@
+package com.commit451.zapdos;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.common.api.Status;
+import com.google.android.gms.drive.DriveStatusCodes;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.functions.Func0;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RetryPolicyTest {
+
+    @Test
+    public void backoffDoublesUpToTheMax() {
+        RetryPolicy policy = RetryPolicy.create(3, 100, 1000, TimeUnit.MILLISECONDS);
+        for (int retry = 0; retry < 8; retry++) {
+            long bound = Math.min(1000, 100 << retry);
+            for (int i = 0; i < 1000; i++) {
+                long backoff = policy.backoffMillis(retry);
+                assertTrue(backoff >= 0 && backoff < bound);
+            }
+        }
+    }
+
+    @Test
+    public void backoffIsJittered() {
+        RetryPolicy policy = RetryPolicy.create(3, 1000, 1000, TimeUnit.MILLISECONDS);
+        long first = policy.backoffMillis(0);
+        for (int i = 0; i < 100; i++) {
+            if (policy.backoffMillis(0) != first) {
+                return;
+            }
+        }
+        throw new AssertionError("Backoff is always " + first);
+    }
+
+    @Test
+    public void backoffNeverOverflows() {
+        RetryPolicy policy = RetryPolicy.create(3, 500, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        for (int retry = 0; retry < 100; retry++) {
+            assertTrue(policy.backoffMillis(retry) >= 0);
+        }
+        assertEquals(0, RetryPolicy.NONE.backoffMillis(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxBackoffBelowInitialIsRejected() {
+        RetryPolicy.create(3, 1000, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void onlyTransientFailuresAreRetryable() {
+        RetryPolicy policy = RetryPolicy.DEFAULT;
+        assertTrue(policy.isRetryable(failure(CommonStatusCodes.NETWORK_ERROR)));
+        assertTrue(policy.isRetryable(failure(CommonStatusCodes.INTERNAL_ERROR)));
+        assertTrue(policy.isRetryable(failure(DriveStatusCodes.DRIVE_RATE_LIMIT_EXCEEDED)));
+        assertFalse(policy.isRetryable(failure(DriveStatusCodes.DRIVE_RESOURCE_NOT_AVAILABLE)));
+        assertFalse(policy.isRetryable(new InterruptedIOException()));
+        assertFalse(policy.isRetryable(new IOException()));
+    }
+
+    @Test
+    public void retriesUpToTheMax() {
+        AtomicInteger attempts = new AtomicInteger();
+        TestSubscriber<Object> subscriber = new TestSubscriber<>();
+        RetryPolicy.create(5, 0, 0, TimeUnit.MILLISECONDS)
+                .apply(failing(attempts, failure(CommonStatusCodes.NETWORK_ERROR)), 2)
+                .subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertError(DriveStatusException.class);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void fatalFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        TestSubscriber<Object> subscriber = new TestSubscriber<>();
+        RetryPolicy.create(5, 0, 0, TimeUnit.MILLISECONDS)
+                .apply(failing(attempts, failure(DriveStatusCodes.DRIVE_RESOURCE_NOT_AVAILABLE)), 5)
+                .subscribe(subscriber);
+        subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        subscriber.assertError(DriveStatusException.class);
+        assertEquals(1, attempts.get());
+    }
+
+    private static DriveStatusException failure(int statusCode) {
+        return new DriveStatusException("write file", new Status(statusCode));
+    }
+
+    private static Observable<Object> failing(final AtomicInteger attempts, final Throwable error) {
+        return Observable.defer(new Func0<Observable<Object>>() {
+            @Override
+            public Observable<Object> call() {
+                attempts.incrementAndGet();
+                return Observable.error(error);
+            }
+        });
+    }
+}
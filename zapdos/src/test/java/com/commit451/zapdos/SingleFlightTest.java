@@ -0,0 +1,138 @@
+package com.commit451.zapdos;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, Object> mSingleFlight = new SingleFlight<>();
+
+    @Test
+    public void concurrentCallersShareOneCall() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object result = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<Object> caller = new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return mSingleFlight.execute("notes", new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            calls.incrementAndGet();
+                            started.countDown();
+                            release.await();
+                            return result;
+                        }
+                    });
+                }
+            };
+            Future<Object> first = executor.submit(caller);
+            started.await();
+            Future<Object> second = executor.submit(caller);
+            Future<Object> third = executor.submit(caller);
+            //give the others time to find the call in flight
+            Thread.sleep(100);
+            release.countDown();
+            assertSame(result, first.get(5, TimeUnit.SECONDS));
+            assertSame(result, second.get(5, TimeUnit.SECONDS));
+            assertSame(result, third.get(5, TimeUnit.SECONDS));
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void finishedCallsAreNotReused() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<Object> callable = new Callable<Object>() {
+            @Override
+            public Object call() {
+                return calls.incrementAndGet();
+            }
+        };
+        assertEquals(1, mSingleFlight.execute("notes", callable));
+        assertEquals(2, mSingleFlight.execute("notes", callable));
+        assertEquals(3, mSingleFlight.execute("other", callable));
+    }
+
+    @Test
+    public void failuresAreRethrownAsIs() throws Exception {
+        final IOException failure = new IOException("offline");
+        try {
+            mSingleFlight.execute("notes", new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw failure;
+                }
+            });
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        final IllegalStateException crash = new IllegalStateException();
+        try {
+            mSingleFlight.execute("notes", new Callable<Object>() {
+                @Override
+                public Object call() {
+                    throw crash;
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(crash, e);
+        }
+    }
+
+    @Test
+    public void waitingOnSomeoneElsesCallMeetsTheDeadline() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return mSingleFlight.execute("notes", new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            started.countDown();
+                            release.await();
+                            return "slow";
+                        }
+                    });
+                }
+            });
+            started.await();
+            try {
+                mSingleFlight.execute("notes", new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        throw new AssertionError("Should have waited on the call in flight");
+                    }
+                }, Deadline.after(50));
+                fail();
+            } catch (InterruptedIOException expected) {
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.common.api.Status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class TracerTest {
+
+    interface Notes {
+
+        void write();
+    }
+
+    @Test
+    public void emptyDump() {
+        assertEquals("{\"traceEvents\":[],\"displayTimeUnit\":\"ms\"}", new Tracer().dump());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new Tracer(0);
+    }
+
+    @Test
+    public void spansCarryTheirDetails() {
+        Tracer tracer = new Tracer();
+        long start = System.nanoTime();
+        tracer.record("write body", 7, null, "app/notes", start, start + 1500, 42, -1, null);
+        tracer.record("query folder", 7, null, null, start, start + 1000, -1, CommonStatusCodes.NETWORK_ERROR,
+                new IOException("offline"));
+        String dump = tracer.dump();
+        assertTrue(dump, dump.contains("{\"name\":\"write body\",\"cat\":\"zapdos\",\"ph\":\"X\",\"pid\":1,\"tid\":7,"));
+        assertTrue(dump, dump.contains("\"dur\":1.500,\"args\":{\"method\":\"Backend\",\"path\":\"app/notes\",\"bytes\":42}}"));
+        assertTrue(dump, dump.contains("\"dur\":1.000,\"args\":{\"method\":\"Backend\",\"status\":7,"
+                + "\"error\":\"java.io.IOException: offline\"}}"));
+        assertTrue(dump.indexOf("write body") < dump.indexOf("query folder"));
+    }
+
+    @Test
+    public void stringsAreEscaped() {
+        Tracer tracer = new Tracer();
+        long start = System.nanoTime();
+        tracer.record("say \"hi\"\n\\", 1, null, "tab\there\u0001", start, start, -1, -1, null);
+        String dump = tracer.dump();
+        assertTrue(dump, dump.contains("\"name\":\"say \\\"hi\\\"\\n\\\\\""));
+        assertTrue(dump, dump.contains("\"path\":\"tab\\there\\u0001\""));
+    }
+
+    @Test
+    public void oldestSpansAreOverwritten() {
+        Tracer tracer = new Tracer(2);
+        long start = System.nanoTime();
+        tracer.record("first", 1, null, null, start, start, -1, -1, null);
+        tracer.record("second", 1, null, null, start, start, -1, -1, null);
+        tracer.record("third", 1, null, null, start, start, -1, -1, null);
+        String dump = tracer.dump();
+        assertFalse(dump.contains("first"));
+        assertTrue(dump.indexOf("second") < dump.indexOf("third"));
+
+        tracer.clear();
+        assertEquals(new Tracer().dump(), tracer.dump());
+    }
+
+    @Test
+    public void callsReportEveryPhase() throws Exception {
+        Method write = Notes.class.getMethod("write");
+        Metrics metrics = new Metrics();
+        Tracer tracer = new Tracer();
+        Call call = new Call(null, write, Uri.parse("app/notes/first"), Deadline.NONE, metrics, tracer);
+        long start = System.nanoTime();
+        call.folderResolved(Uri.parse("app/notes"), start);
+        call.roundTrip("create file", new Status(CommonStatusCodes.SUCCESS), start);
+        call.bodyWritten(5, start);
+        call.roundTrip("commit contents", new Status(CommonStatusCodes.SUCCESS), start);
+        call.end(null);
+
+        Metrics.MethodMetrics written = metrics.snapshot().get(0);
+        assertEquals("Notes.write", written.getName());
+        assertEquals(1, written.getCount());
+        assertEquals(2, written.getRoundTrips());
+        assertEquals(5, written.getBytesWritten());
+
+        String dump = tracer.dump();
+        int folder = dump.indexOf("\"name\":\"resolve folder\"");
+        int create = dump.indexOf("\"name\":\"create file\"");
+        int body = dump.indexOf("\"name\":\"write body\"");
+        int commit = dump.indexOf("\"name\":\"commit contents\"");
+        int end = dump.indexOf("\"name\":\"write\"");
+        assertTrue(dump, folder >= 0 && folder < create && create < body && body < commit && commit < end);
+        assertTrue(dump, dump.contains("\"method\":\"Notes.write\",\"path\":\"app/notes/first\",\"bytes\":5}"));
+    }
+
+    @Test
+    public void readsReportTheBytesRead() throws Exception {
+        Method write = Notes.class.getMethod("write");
+        Metrics metrics = new Metrics();
+        Tracer tracer = new Tracer();
+        Call call = new Call(null, write, Uri.parse("app/notes/first"), Deadline.NONE, metrics, tracer);
+        call.bodyRead(12, System.nanoTime());
+        call.end(null);
+
+        assertEquals(12, metrics.snapshot().get(0).getBytesRead());
+        String dump = tracer.dump();
+        assertTrue(dump, dump.contains("\"name\":\"read body\""));
+        assertTrue(dump, dump.contains("\"path\":\"app/notes/first\",\"bytes\":12}"));
+    }
+
+    @Test
+    public void onlyTheFirstEndIsReported() throws Exception {
+        Method write = Notes.class.getMethod("write");
+        Metrics metrics = new Metrics();
+        Call call = new Call(null, write, Uri.parse("app/notes/first"), Deadline.NONE, metrics, null);
+        call.end(null);
+        //unsubscribing after the call completed
+        call.end(new IOException("Canceled"));
+
+        Metrics.MethodMetrics written = metrics.snapshot().get(0);
+        assertEquals(1, written.getCount());
+        assertEquals(0, written.getFailures());
+    }
+}
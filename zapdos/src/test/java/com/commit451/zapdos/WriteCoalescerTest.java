@@ -0,0 +1,125 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+
+import com.google.android.gms.drive.DriveId;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class WriteCoalescerTest {
+
+    private static final DriveId DRIVE_ID = new DriveId("resource", 1, 1, DriveId.RESOURCE_TYPE_FILE);
+
+    private RecordingDriver mDriver;
+    private WriteCoalescer mCoalescer;
+
+    @Before
+    public void setUp() {
+        mDriver = new RecordingDriver();
+        mCoalescer = new WriteCoalescer(mDriver, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void writesWithinTheWindowShareOneUpload() {
+        List<DriveId> results = Observable.merge(
+                mCoalescer.write(request("notes/first", "one")),
+                mCoalescer.write(request("notes/first", "two")),
+                mCoalescer.write(request("notes/first", "three")))
+                .toList().toBlocking().single();
+
+        assertEquals(3, results.size());
+        for (DriveId result : results) {
+            assertSame(DRIVE_ID, result);
+        }
+        assertEquals(1, mDriver.writes.size());
+        //only the latest body is uploaded
+        assertArrayEquals("three".getBytes(), mDriver.writes.get(0).requestBody.bytes);
+    }
+
+    @Test
+    public void differentPathsUploadSeparately() {
+        Observable.merge(
+                mCoalescer.write(request("notes/first", "one")),
+                mCoalescer.write(request("notes/second", "two")))
+                .toList().toBlocking().single();
+
+        assertEquals(2, mDriver.writes.size());
+    }
+
+    @Test
+    public void writesAfterTheWindowUploadAgain() {
+        mCoalescer.write(request("notes/first", "one")).toBlocking().single();
+        mCoalescer.write(request("notes/first", "two")).toBlocking().single();
+
+        assertEquals(2, mDriver.writes.size());
+    }
+
+    @Test
+    public void nothingIsUploadedUntilSubscribed() throws Exception {
+        mCoalescer.write(request("notes/first", "one"));
+        Thread.sleep(200);
+
+        assertEquals(0, mDriver.writes.size());
+    }
+
+    @Test
+    public void failuresReachEveryWrite() {
+        mDriver.failure = new IOException("offline");
+        TestSubscriber<DriveId> first = new TestSubscriber<>();
+        TestSubscriber<DriveId> second = new TestSubscriber<>();
+        mCoalescer.write(request("notes/first", "one")).subscribe(first);
+        mCoalescer.write(request("notes/first", "two")).subscribe(second);
+        first.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        second.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+        first.assertError(mDriver.failure);
+        second.assertError(mDriver.failure);
+        assertEquals(1, mDriver.writes.size());
+    }
+
+    private static Request request(String path, String contents) {
+        return new Request(Uri.parse("app://" + path), Driver.METHOD_CREATE,
+                RequestBody.create(null, contents.getBytes()));
+    }
+
+    /**
+     * Records the writes instead of uploading them
+     */
+    static class RecordingDriver extends Driver {
+
+        final List<Request> writes = new CopyOnWriteArrayList<>();
+        volatile IOException failure;
+
+        RecordingDriver() {
+            super(null, new FolderCache(1), new FileCache(1), null, null, RateLimiter.UNLIMITED,
+                    EventListener.NONE, null);
+        }
+
+        @Override
+        public DriveId write(Request request) throws IOException {
+            writes.add(request);
+            if (failure != null) {
+                throw failure;
+            }
+            return DRIVE_ID;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.commit451.zapdos;
+
+import android.net.Uri;
+
+import com.google.android.gms.drive.MetadataChangeSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class WriteJournalTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = new File(mTemporaryFolder.getRoot(), "journal");
+    }
+
+    @Test
+    public void recordsRoundTrip() throws Exception {
+        MetadataChangeSet metadata = new MetadataChangeSet.Builder()
+                .setTitle("first")
+                .setDescription("the first note")
+                .setStarred(true)
+                .build();
+        append("app/notes/first", "text/plain", RequestBody.create(metadata, "hello".getBytes("UTF-8")));
+
+        BufferedSource source = Okio.buffer(Okio.source(mFile));
+        try {
+            WriteJournal.Entry entry = WriteJournal.Entry.readFrom(source);
+            assertEquals("app/notes/first", entry.uri);
+            assertEquals("text/plain", entry.mimeType);
+            assertEquals("first", entry.title);
+            assertEquals("the first note", entry.description);
+            assertNull(entry.metadataMimeType);
+            assertEquals(Boolean.TRUE, entry.starred);
+            assertEquals(5, entry.contentLength);
+
+            Request request = entry.toRequest(source.readByteString(entry.contentLength));
+            assertTrue(source.exhausted());
+            assertEquals(Uri.parse("app/notes/first"), request.uri);
+            assertEquals(Driver.METHOD_CREATE, request.method);
+            assertEquals("text/plain", request.mimeType);
+            assertEquals("first", request.requestBody.metadataChangeSet.getTitle());
+            assertEquals("the first note", request.requestBody.metadataChangeSet.getDescription());
+            assertArrayEquals("hello".getBytes("UTF-8"), request.requestBody.bytes);
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void latestWriteToEachPathWins() throws Exception {
+        append("app/notes/first", "text/plain", body("first", "one"));
+        append("app/notes/second", "text/plain", body("second", "two"));
+        append("app/notes/first", "text/plain", body("first", "three"));
+        //the same path with another mime type is another file
+        append("app/notes/first", "application/json", body("first", "{}"));
+
+        WriteJournal.Scan scan = WriteJournal.scan(mFile);
+        assertEquals(4, scan.count);
+        assertEquals(mFile.length(), scan.size);
+        assertFalse(scan.corrupt);
+        assertEquals(3, scan.latest.size());
+        assertEquals(2, (int) scan.latest.get("text/plain app/notes/first"));
+        assertEquals(1, (int) scan.latest.get("text/plain app/notes/second"));
+        assertEquals(3, (int) scan.latest.get("application/json app/notes/first"));
+    }
+
+    @Test
+    public void missingJournalIsEmpty() throws Exception {
+        WriteJournal.Scan scan = WriteJournal.scan(mFile);
+        assertEquals(0, scan.count);
+        assertTrue(scan.latest.isEmpty());
+        assertFalse(scan.corrupt);
+    }
+
+    @Test
+    public void truncatedTailIsDropped() throws Exception {
+        append("app/notes/first", "text/plain", body("first", "one"));
+        long complete = mFile.length();
+        append("app/notes/second", "text/plain", body("second", "two"));
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        try {
+            file.setLength(file.length() - 2);
+        } finally {
+            file.close();
+        }
+
+        WriteJournal.Scan scan = WriteJournal.scan(mFile);
+        assertEquals(1, scan.count);
+        assertEquals(complete, scan.size);
+        assertFalse(scan.corrupt);
+        assertEquals(0, (int) scan.latest.get("text/plain app/notes/first"));
+    }
+
+    @Test
+    public void unreadableEntryMarksTheRestCorrupt() throws Exception {
+        append("app/notes/first", "text/plain", body("first", "one"));
+        long readable = mFile.length();
+        BufferedSink sink = Okio.buffer(Okio.sink(new FileOutputStream(mFile, true)));
+        try {
+            sink.writeInt(42);
+            sink.write(ByteString.encodeUtf8("garbage"));
+        } finally {
+            sink.close();
+        }
+        append("app/notes/second", "text/plain", body("second", "two"));
+
+        WriteJournal.Scan scan = WriteJournal.scan(mFile);
+        assertEquals(1, scan.count);
+        assertEquals(readable, scan.size);
+        assertTrue(scan.corrupt);
+        assertFalse(scan.latest.containsKey("text/plain app/notes/second"));
+    }
+
+    private void append(String uri, String mimeType, RequestBody body) throws Exception {
+        BufferedSink sink = Okio.buffer(Okio.sink(new FileOutputStream(mFile, true)));
+        try {
+            WriteJournal.writeRecord(sink, Uri.parse(uri), mimeType, body);
+        } finally {
+            sink.close();
+        }
+    }
+
+    private static RequestBody body(String title, String contents) throws Exception {
+        MetadataChangeSet metadata = new MetadataChangeSet.Builder()
+                .setTitle(title)
+                .build();
+        return RequestBody.create(metadata, contents.getBytes("UTF-8"));
+    }
+}